@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Rudimentary comparison of ApproximateLookup against StudentLookup
+ * Times the ingest of each Controller input with both, then measures how far the
+ * approximate counts and top ranks are from the exact ones
+ * @author Zachary Zampa
+ * @since 2019/05/23
+ *
+ */
+public class ApproximateBenchmark {
+
+	private static final int TOP_RANKS = 100;  // ranks compared between the two
+
+	public static void main(String[] args) {
+		String[] files = args.length > 0 ? args
+				: new String[] {"1.txt", "2.txt", "3.txt", "4.txt", "5.txt", "6.txt", "7.txt"};
+
+		for (String file : files) {
+			System.out.println("file " + file);
+			ArrayList<String> wordList = Controller.readFile(file);
+
+			// warm up both paths once so the first one is not penalized
+			ingest(new StudentLookup(), wordList);
+			ingest(new ApproximateLookup(), wordList);
+
+			StudentLookup exact = new StudentLookup();
+			ApproximateLookup approximate = new ApproximateLookup();
+			System.out.println("exact      : " + ingest(exact, wordList) + " milliseconds / insert");
+			System.out.println("approximate: " + ingest(approximate, wordList) + " milliseconds / insert");
+
+			// count error over every distinct word
+			HashSet<String> distinct = new HashSet<>(wordList);
+			long totalError = 0;
+			int maxError = 0;
+			for (String word : distinct) {
+				int error = approximate.lookupCount(word) - exact.lookupCount(word);
+				totalError += error;
+				maxError = Math.max(maxError, error);
+			}
+			System.out.println("count error: " + (double) totalError / distinct.size() + " average, "
+					+ maxError + " max, over " + distinct.size() + " words");
+			System.out.println("entries    : " + approximate.numEntries() + " estimated, "
+					+ exact.numEntries() + " exact");
+
+			// top ranks that agree exactly, and how many of the top words were found at all
+			int ranks = Math.min(TOP_RANKS, exact.numEntries());
+			int sameRank = 0;
+			int found = 0;
+			for (int n = 0; n < ranks; n++) {
+				String word = exact.lookupPopularity(n);
+				int rank = approximate.lookupRank(word);
+				if (rank == n) {
+					sameRank++;
+				}
+				if (rank >= 0 && rank < ranks) {
+					found++;
+				}
+			}
+			System.out.println("top " + ranks + ": " + sameRank + " same rank, " + found + " found");
+		}
+	}
+
+	/**
+	 * Add every word to a lookup
+	 * @param lookup lookup to fill
+	 * @param wordList words to count
+	 * @return milliseconds per insert
+	 */
+	private static double ingest(LookupInterface lookup, ArrayList<String> wordList) {
+		long startTime = System.nanoTime();
+		for (String w : wordList) {
+			lookup.addString(1, w);
+		}
+		long endTime = System.nanoTime();
+		return ((endTime - startTime) / 1000000.0) / wordList.size();
+	}
+
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+
+/**
+ * A LookupInterface in fixed memory, for vocabularies past what the exact tables can hold
+ * Counts come from a Count-Min sketch and the rankings from a Space-Saving summary
+ * of the heaviest hitters, so memory depends on the error bounds, not the input
+ * lookupCount is never below the true count and, with probability 1 - delta, at most
+ * epsilon times the total count above it; the ranks are only known for the strings
+ * the summary monitors, and are exact for those counted more than total / heavyHitters times
+ * numEntries is a HyperLogLog estimate, within 1.04 / sqrt(2^precision) of the true count;
+ * with the estimate turned off it is only the number of heavy hitters monitored
+ * @author Zachary Zampa
+ * @since 2019/05/23
+ *
+ */
+
+
+public class ApproximateLookup implements LookupInterface {
+
+	// Lookup Properties
+	private CountMinSketch sketch;  // counts of every string
+	private SpaceSaving summary;  // counts and ranks of the heavy hitters
+	private HyperLogLog distinct;  // number of distinct strings; null when turned off
+	private static final double DEFAULT_EPSILON = 0.0001;  // default overestimate -- 0.01% of the total
+	private static final double DEFAULT_DELTA = 0.01;  // default chance of a larger overestimate
+	private static final int DEFAULT_HEAVY_HITTERS = 1000;  // default strings ranked
+	private static final int DEFAULT_PRECISION = 14;  // default distinct count precision -- 0.81% error
+
+
+	/**
+	 * Empty Constructor
+	 */
+	public ApproximateLookup() {
+		this(DEFAULT_EPSILON, DEFAULT_DELTA, DEFAULT_HEAVY_HITTERS);
+	}
+
+	/**
+	 * Error based Constructor
+	 * @param epsilon overestimate of a count allowed, as a fraction of the total count
+	 * @param delta probability a count may be overestimated by more
+	 * @param heavyHitters number of top strings to rank
+	 */
+	public ApproximateLookup(double epsilon, double delta, int heavyHitters) {
+		this(epsilon, delta, heavyHitters, DEFAULT_PRECISION);
+	}
+
+	/**
+	 * Error and precision based Constructor
+	 * @param epsilon overestimate of a count allowed, as a fraction of the total count
+	 * @param delta probability a count may be overestimated by more
+	 * @param heavyHitters number of top strings to rank
+	 * @param precision HyperLogLog precision for numEntries, 4 - 18, or 0 to turn the estimate off
+	 */
+	public ApproximateLookup(double epsilon, double delta, int heavyHitters, int precision) {
+		sketch = new CountMinSketch(epsilon, delta);
+		summary = new SpaceSaving(heavyHitters);
+		distinct = precision == 0 ? null : new HyperLogLog(precision);
+	}
+
+	@Override
+	public void addString(int amount, String s) {
+		sketch.add(s, amount);
+		summary.offer(s, amount);
+
+		if (distinct != null) {
+			distinct.offer(s);
+		}
+	}
+
+	@Override
+	public int lookupCount(String s) {
+		int count = sketch.estimate(s);
+		int monitored = summary.getCount(s);
+
+		// both only overestimate, so the smaller one is closer
+		return monitored > 0 ? Math.min(count, monitored) : count;
+	}
+
+	/**
+	 * Ranks past the heavy hitters are not known
+	 * @return string, or null if n is not among the heavy hitters
+	 */
+	@Override
+	public String lookupPopularity(int n) {
+		DataWrapper entry = summary.getNMax(n);
+		return entry == null ? null : entry.getData();
+	}
+
+	@Override
+	public DataWrapper[] topK(int k) {
+		return lookupPopularityRange(0, k);
+	}
+
+	@Override
+	public DataWrapper[] lookupPopularityRange(int from, int to) {
+		to = Math.min(to, summary.getSize());  // only the heavy hitters are ranked
+
+		if (from < 0 || from >= to) {
+			return new DataWrapper[0];
+		}
+
+		DataWrapper[] range = new DataWrapper[to - from];
+		summary.getNMaxRange(from, range);
+		return range;
+	}
+
+	@Override
+	public int lookupRank(String s) {
+		return summary.getRank(s);  // -1 when not among the heavy hitters
+	}
+
+	/**
+	 * Only the heavy hitters are searched
+	 */
+	@Override
+	public DataWrapper[] lookupPrefix(String prefix, int k) {
+		DataWrapper[] all = topK(summary.getSize());
+
+		// already in rank order -- keep the first k matches
+		DataWrapper[] matches = new DataWrapper[Math.max(0, Math.min(k, all.length))];
+		int found = 0;
+		for (int i = 0; i < all.length && found < matches.length; i++) {
+			if (all[i].getData().startsWith(prefix)) {
+				matches[found++] = all[i];
+			}
+		}
+
+		return found == matches.length ? matches : Arrays.copyOf(matches, found);
+	}
+
+	/**
+	 * Another ApproximateLookup made with the same bounds is merged sketch to sketch,
+	 * so nothing it counted is lost; other lookups add their entries one at a time
+	 * If only this one estimates numEntries, the other's heavy hitters are all it learns of
+	 */
+	@Override
+	public void mergeFrom(LookupInterface other) {
+		if (other instanceof ApproximateLookup) {
+			ApproximateLookup approximate = (ApproximateLookup) other;
+			sketch.merge(approximate.sketch);
+			summary.merge(approximate.summary);
+
+			if (distinct != null && approximate.distinct != null) {
+				distinct.merge(approximate.distinct);
+			} else if (distinct != null) {
+				for (DataWrapper entry : approximate.topK(approximate.summary.getSize())) {
+					distinct.offer(entry.getData());
+				}
+			}
+		} else {
+			LookupInterface.super.mergeFrom(other);
+		}
+	}
+
+	/**
+	 * Distinct strings are not kept, so this is a HyperLogLog estimate; it is never
+	 * below the number of heavy hitters monitored, which are known to be distinct,
+	 * and is exactly that number when the estimate is turned off
+	 */
+	@Override
+	public int numEntries() {
+		if (distinct == null) {
+			return summary.getSize();
+		}
+
+		return (int) Math.max(summary.getSize(), Math.round(distinct.estimate()));
+	}
+
+}
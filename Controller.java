@@ -1,5 +1,6 @@
-import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.ObjIntConsumer;
 
 /**
  *
@@ -21,6 +22,7 @@ public class Controller {
 	 */
 
 	static Random rng;
+	private static final int BATCH_SIZE = 1 << 16;  // words held and timed at once
 
 	public static void main(String[] args) {
 
@@ -57,89 +59,113 @@ public class Controller {
 
 	}
 
+	/**
+	 * Read every word of a file into a list
+	 * Words are the runs of letters and digits between spaces and line breaks, with any
+	 * other character dropped; the file is memory mapped and scanned by Tokenizer
+	 * 
+	 * @param fileName
+	 * @return words in order
+	 */
 	public static ArrayList<String> readFile(String fileName) {
-		ArrayList<String> wordList = new ArrayList<>();
-		String line;
-		try {
-			FileReader fileReader = new FileReader(fileName);
-			try (BufferedReader bufferedReader = new BufferedReader(fileReader)) {
-				while ((line = bufferedReader.readLine()) != null) {
-					line = line.replaceAll("[^A-Za-z0-9 ]", ""); // Remove all
-																	// non-alphanumeric/whitespace
-																	// characters
-					for (String word : line.split(" "))
-						if (!word.isEmpty())
-							wordList.add(word.trim());
-				}
-			}
-		} catch (FileNotFoundException ex) {
-			System.err.println("Unable to open file '" + fileName + "'");
-			System.exit(1);
-		} catch (IOException ex) {
-			System.err.println("Error reading file '" + fileName + "'");
-			System.exit(1);
-		}
-		return wordList;
+		return Tokenizer.readFile(fileName);
 	}
 
 	/**
 	 * Find the total time to insert the words into a list.
+	 * The file is streamed through a Tokenizer into a reused batch of words rather than
+	 * read into a list first, so the heap needed grows with the distinct words, not the file;
+	 * only the lookup calls on each batch are timed, as when the whole list was read first
 	 * 
-	 * @param wordList
+	 * @param file
 	 * @return average time per insert
 	 */
 	public static void timeTests(String file) {
-		ArrayList<String> wordList = readFile(file);
-
 		// Average time for insert
-		long startTime = System.nanoTime();
 		LookupInterface tr = new StudentLookup();
-		for (String w : wordList)
-			tr.addString(1, w);
-		long endTime = System.nanoTime();
-		double test1 = (double) ((endTime - startTime) / 1000000.0) / (double) wordList.size();
+		long[] timed = timeBatches(file, (words, size) -> {
+			for (int i = 0; i < size; i++)
+				tr.addString(1, words[i]);
+		});
+		long words = timed[1];
+		double test1 = (double) (timed[0] / 1000000.0) / (double) words;
 		System.out.println("Test 1: " + test1 + " milliseconds / insert");
 //		System.out.println(tr.numEntries());
 
-//		Set<DataWrapper> st = new HashSet<DataWrapper>();  // test print
 		// Average time for getCount
-		startTime = System.nanoTime();
-		for (String w : wordList) {
-			tr.lookupCount(w);
-//			st.add(new DataWrapper(w, tr.lookupCount(w)));  // test print
-		}
-//		Set<DataWrapper> sst = new TreeSet<DataWrapper>(st); // test print
-//		for (DataWrapper w : sst) {   // test print
-//			System.out.println(tr.lookupCount(w.getData()) + " " + w.getData());  // test print
-//		}   // test print
-		endTime = System.nanoTime();
-		double test2 = (double) ((endTime - startTime) / 1000000.0) / (double) wordList.size();
+		timed = timeBatches(file, (batch, size) -> {
+			for (int i = 0; i < size; i++)
+				tr.lookupCount(batch[i]);
+		});
+		double test2 = (double) (timed[0] / 1000000.0) / (double) words;
 		System.out.println("Test 2: " + test2 + " milliseconds / getCount");
 
 		// Average time for getNthMostPopular();
 		int n = tr.numEntries();
-		startTime = System.nanoTime();
+		long startTime = System.nanoTime();
 		for (int i = 0; i < n; i++)
 			tr.lookupPopularity(i);
-		endTime = System.nanoTime();
+		long endTime = System.nanoTime();
 		double test3 = (double) ((endTime - startTime) / 1000000.0) / (double) n;
 		System.out.println("Test 3: " + test3 + " milliseconds / getNthMostPopular");
 
 		// Average time per operation when mixing operations
-		tr = new StudentLookup();
-		startTime = System.nanoTime();
-		n = 0;
-		for (int i = 0; i < wordList.size(); i++) {
-			tr.addString(1, wordList.get(i));
-			if (rng.nextDouble() < 0.2)
-				n = tr.numEntries();
-			if (rng.nextDouble() < 0.2) {
-				tr.lookupPopularity(rng.nextInt(Math.max(n, 1)));
+		LookupInterface mixed = new StudentLookup();
+		int[] entries = {0};
+		timed = timeBatches(file, (batch, size) -> {
+			for (int i = 0; i < size; i++) {
+				mixed.addString(1, batch[i]);
+				if (rng.nextDouble() < 0.2)
+					entries[0] = mixed.numEntries();
+				if (rng.nextDouble() < 0.2) {
+					mixed.lookupPopularity(rng.nextInt(Math.max(entries[0], 1)));
+				}
 			}
-		}
-		endTime = System.nanoTime();
-		double test4 = (endTime - startTime) / 1000000000.0;
+		});
+		double test4 = timed[0] / 1000000000.0;
 		System.out.println("Test 4: " + test4 + " seconds (total)");		
 	}
 
+	/**
+	 * Stream the words of a file a batch at a time, timing only the work done on each batch
+	 * The batch array is reused, so only one batch of words is held at once
+	 * 
+	 * @param file
+	 * @param action work to time; takes the batch and how many of its words are valid
+	 * @return nanoseconds spent in action, and the number of words
+	 */
+	private static long[] timeBatches(String file, ObjIntConsumer<String[]> action) {
+		String[] batch = new String[BATCH_SIZE];
+		int[] size = {0};
+		long[] timed = {0, 0};
+
+		Tokenizer tokenizer = new Tokenizer();
+		tokenizer.scanFile(file, (bytes, length) -> {
+			batch[size[0]++] = new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+			if (size[0] == BATCH_SIZE) {
+				timed[0] += timeBatch(action, batch, size[0]);
+				size[0] = 0;
+			}
+		});
+		timed[0] += timeBatch(action, batch, size[0]);  // the last, partial batch
+		timed[1] = tokenizer.getWords();
+
+		return timed;
+	}
+
+	/**
+	 * Time one batch
+	 * 
+	 * @param action work to time
+	 * @param batch words
+	 * @param size number of valid words
+	 * @return nanoseconds spent in action
+	 */
+	private static long timeBatch(ObjIntConsumer<String[]> action, String[] batch, int size) {
+		long startTime = System.nanoTime();
+		action.accept(batch, size);
+		long endTime = System.nanoTime();
+		return endTime - startTime;
+	}
+
 }
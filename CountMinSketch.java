@@ -0,0 +1,136 @@
+/**
+ * A Count-Min sketch of String counts in fixed memory
+ * depth rows of width counters; a key adds to one counter per row and its estimate
+ * is the smallest of them, which is never below the true count and, with probability
+ * at least 1 - delta, no more than epsilon * (total of all counts) above it
+ * Adds use the conservative update: only the counters below the new estimate are
+ * raised, which keeps the same guarantee with much less overestimation
+ * @author Zachary Zampa
+ * @since 2019/05/23
+ *
+ */
+
+
+public class CountMinSketch {
+
+	// Sketch Properties
+	private int[] counters;  // depth rows of width counters, row after row
+	private int depth;  // number of rows
+	private int mask;  // width - 1; the width is a power of two
+	private long total;  // sum of every amount added
+	private static final int MAX_WIDTH = 1 << 26;  // max counters per row
+
+
+	/**
+	 * Error based Constructor
+	 * @param epsilon overestimate allowed, as a fraction of the total count
+	 * @param delta probability the overestimate may be larger
+	 */
+	public CountMinSketch(double epsilon, double delta) {
+		// width e / epsilon, rounded up to a power of two
+		int width = 2;
+		while (width < Math.E / epsilon) {
+			width <<= 1;
+		}
+		widthCheck(width);
+
+		depth = Math.max(1, (int) Math.ceil(Math.log(1 / delta)));
+		mask = width - 1;
+		counters = new int[depth * width];
+		total = 0;
+	}
+
+	/**
+	 * Check if the width exceeds the maximum width allowed
+	 * @param width counters per row
+	 */
+	private void widthCheck(int width) {
+		if (width > MAX_WIDTH) {
+			// epsilon is too small
+			System.out.printf("ERROR: CountMinSketch width [%d] exceeds limits", width);
+			System.exit(1);  // end program with error code
+		}
+	}
+
+	/**
+	 * Add amount to the count of key
+	 * @param key key to increase
+	 * @param amount amount to add; must not be negative
+	 * @return the new estimate of key
+	 */
+	public int add(String key, int amount) {
+		long hash64 = HyperLogLog.hash(key);
+		int hash = (int) hash64;  // low half picks the first column
+		int step = (int) (hash64 >>> 32) | 1;  // high half is the second hash; odd so the rows differ
+		int target = estimate(hash, step) + amount;
+
+		// conservative update -- raise each counter only as far as the new estimate
+		int h = hash;
+		for (int row = 0; row < depth; row++) {
+			int index = row * (mask + 1) + (h & mask);
+			if (counters[index] < target) {
+				counters[index] = target;
+			}
+			h += step;
+		}
+
+		total += amount;
+		return target;
+	}
+
+	/**
+	 * Get the estimated count of key
+	 * @param key key to look for
+	 * @return estimate; never below the true count
+	 */
+	public int estimate(String key) {
+		long hash64 = HyperLogLog.hash(key);
+		return estimate((int) hash64, (int) (hash64 >>> 32) | 1);
+	}
+
+	/**
+	 * Smallest counter of a key over every row
+	 * Row i uses hash + i * step, so two hashes give every row its own column
+	 * Both come from one 64 bit hash, so keys whose String.hashCode is equal still differ
+	 * @param hash first hash
+	 * @param step second hash
+	 * @return estimate
+	 */
+	private int estimate(int hash, int step) {
+		int min = Integer.MAX_VALUE;
+		int h = hash;
+
+		for (int row = 0; row < depth; row++) {
+			min = Math.min(min, counters[row * (mask + 1) + (h & mask)]);
+			h += step;
+		}
+
+		return min;
+	}
+
+	/**
+	 * Add another sketch's counts to this one; estimates keep their guarantee over both
+	 * @param other sketch made with the same epsilon and delta
+	 */
+	public void merge(CountMinSketch other) {
+		if (other.counters.length != counters.length || other.depth != depth) {
+			// counters do not line up
+			System.out.println("ERROR: CountMinSketch dimensions differ");
+			System.exit(1);  // end program with error code
+		}
+
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] += other.counters[i];
+		}
+		total += other.total;
+	}
+
+	/**
+	 * Get the sum of every amount added; estimates are within epsilon times this
+	 * @return total
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+}
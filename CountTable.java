@@ -0,0 +1,377 @@
+import java.nio.charset.StandardCharsets;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An open addressing table that maps a String to an int count
+ * Keys and counts are kept in parallel arrays, so there are no entry objects
+ * and no boxing; the table is a power of two and uses linear probing
+ * Each slot also keeps its key's hash, so a probe only calls equals on a hash match
+ * @author Zachary Zampa
+ * @since 2019/05/10
+ *
+ */
+
+
+public class CountTable {
+
+	// Table Properties
+	private int numberOfEntries;  // number of keys in the table
+	private static final int DEFAULT_CAPACITY = 1000000;  // default capacity
+	private static final int MAX_CAPACITY = 10000000;  // max capacity = 10^7
+	private static final int MAX_SIZE = 1 << 25;  // max length of the arrays -- first power of two over 2 * MAX_CAPACITY
+	private static final double MAX_LOAD = 0.5;  // How much of the table can be filled
+	private String[] keys;  // keys; null means the slot is free
+	private int[] counts;  // count that belongs to the key at the same index
+	private int[] hashes;  // spread hash of the key at the same index
+	private int mask;  // table length - 1; used in place of modulo
+	private int resizeAt;  // number of entries that triggers an enlarge
+	private String lastKey;  // key touched by the last byte increment
+
+
+	/**
+	 * Empty Constructor
+	 */
+	public CountTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Size based Constructor
+	 * @param capacity number of keys expected
+	 */
+	public CountTable(int capacity) {
+		capacityCheck(capacity);
+		numberOfEntries = 0;
+
+		// smallest power of two that keeps capacity under the max load
+		int tableSize = 2;
+		while (tableSize * MAX_LOAD < capacity) {
+			tableSize <<= 1;
+		}
+		sizeCheck(tableSize);
+		allocate(tableSize);
+	}
+
+	/**
+	 * Checks if the capacity exceeds the maximum capacity allowed
+	 * @param capacity number of keys
+	 */
+	private void capacityCheck(int capacity) {
+		if (capacity > MAX_CAPACITY) {
+			// size exceeds max capacity
+			System.out.printf("ERROR: CountTable capacity [%d] exceeds limits", capacity);
+			System.exit(1);  // end program with error code
+		}
+	}
+
+	/**
+	 * Check if the size exceeds the maximum size allowed
+	 * @param size length of the arrays
+	 */
+	private void sizeCheck(int size) {
+		if (size > MAX_SIZE) {
+			// size exceeds max size
+			System.out.printf("ERROR: CountTable size [%d] exceeds limits", size);
+			System.exit(1);  // end program with error code
+		}
+	}
+
+	/**
+	 * Create fresh arrays of the given length
+	 * @param tableSize power of two length
+	 */
+	private void allocate(int tableSize) {
+		keys = new String[tableSize];
+		counts = new int[tableSize];
+		hashes = new int[tableSize];
+		mask = tableSize - 1;
+		resizeAt = (int) (MAX_LOAD * tableSize);
+	}
+
+	/**
+	 * Add amount to the count of key; the key is inserted if it is not here yet
+	 * Only one probe sequence is walked for both the lookup and the insert
+	 * @param key key to increase
+	 * @param amount amount to add
+	 * @return the new count of key
+	 */
+	public int increment(String key, int amount) {
+		int hash = spread(key.hashCode());
+		int index = hash & mask;
+
+		// walk until the key or a free slot is found
+		while (keys[index] != null) {
+			if (hashes[index] == hash && keys[index].equals(key)) {
+				// key found -- bump in place
+				counts[index] += amount;
+				return counts[index];
+			}
+			index = (index + 1) & mask;  // conduct linear probing
+		}
+
+		// key not found -- claim the free slot
+		keys[index] = key;
+		counts[index] = amount;
+		hashes[index] = hash;
+		numberOfEntries++;
+
+		if (numberOfEntries > resizeAt) {
+			enlargeTable();
+		}
+
+		return amount;
+	}
+
+	/**
+	 * Add amount to the count of a key given as ASCII bytes; the key is inserted if it is not here yet
+	 * The bytes hash like the equal String, so both kinds of increment find the same slot,
+	 * and a String is only created when the key is new
+	 * @param bytes array holding the key
+	 * @param from index of its first byte
+	 * @param length number of bytes
+	 * @param amount amount to add
+	 * @return the new count of the key; getLastKey gives the key as a String
+	 */
+	public int increment(byte[] bytes, int from, int length, int amount) {
+		int h = 0;
+		for (int i = from; i < from + length; i++) {
+			h = 31 * h + bytes[i];  // same as String.hashCode for ASCII
+		}
+
+		int hash = spread(h);
+		int index = hash & mask;
+
+		// walk until the key or a free slot is found
+		while (keys[index] != null) {
+			if (hashes[index] == hash && matches(keys[index], bytes, from, length)) {
+				// key found -- bump in place
+				counts[index] += amount;
+				lastKey = keys[index];
+				return counts[index];
+			}
+			index = (index + 1) & mask;  // conduct linear probing
+		}
+
+		// key not found -- claim the free slot
+		keys[index] = new String(bytes, from, length, StandardCharsets.ISO_8859_1);
+		counts[index] = amount;
+		hashes[index] = hash;
+		lastKey = keys[index];
+		numberOfEntries++;
+
+		if (numberOfEntries > resizeAt) {
+			enlargeTable();
+		}
+
+		return amount;
+	}
+
+	/**
+	 * Get the key touched by the last byte increment, as the String the table holds
+	 * @return key
+	 */
+	public String getLastKey() {
+		return lastKey;
+	}
+
+	/**
+	 * Check if a key equals a run of ASCII bytes
+	 * @param key stored key
+	 * @param bytes array holding the bytes
+	 * @param from index of the first byte
+	 * @param length number of bytes
+	 * @return true if equal
+	 */
+	private static boolean matches(String key, byte[] bytes, int from, int length) {
+		if (key.length() != length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (key.charAt(i) != bytes[from + i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get the count of key
+	 * @param key key to look for
+	 * @return count, or 0 if the key is not here
+	 */
+	public int get(String key) {
+		int hash = spread(key.hashCode());
+		int index = hash & mask;
+
+		while (keys[index] != null) {
+			if (hashes[index] == hash && keys[index].equals(key)) {
+				// key found
+				return counts[index];
+			}
+			index = (index + 1) & mask;  // conduct linear probing
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Return if the table contains key
+	 * @param key key to look for
+	 * @return true if contained
+	 */
+	public boolean contains(String key) {
+		int hash = spread(key.hashCode());
+		int index = hash & mask;
+
+		while (keys[index] != null) {
+			if (hashes[index] == hash && keys[index].equals(key)) {
+				return true;
+			}
+			index = (index + 1) & mask;  // conduct linear probing
+		}
+
+		return false;
+	}
+
+	/**
+	 * Remove a key and its count
+	 * The entries after it in its cluster are shifted back into the gap where their
+	 * home slot allows it, so no tombstones are left behind for probes to walk
+	 * @param key key to remove
+	 * @return its count, or 0 if the key is not here
+	 */
+	public int remove(String key) {
+		int hash = spread(key.hashCode());
+		int index = hash & mask;
+
+		while (keys[index] != null && !(hashes[index] == hash && keys[index].equals(key))) {
+			index = (index + 1) & mask;  // conduct linear probing
+		}
+
+		if (keys[index] == null) {
+			return 0;  // not here
+		}
+
+		int removed = counts[index];
+		int gap = index;
+
+		// walk the rest of the cluster and pull back anything allowed into the gap
+		for (int i = (index + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+			int home = hashes[i] & mask;
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				// the gap is on its probe path -- move it back
+				keys[gap] = keys[i];
+				counts[gap] = counts[i];
+				hashes[gap] = hashes[i];
+				gap = i;
+			}
+		}
+
+		keys[gap] = null;
+		counts[gap] = 0;
+		numberOfEntries--;
+		return removed;
+	}
+
+	/**
+	 * Pass every key and its count to an action, in table order
+	 * @param action called once per key
+	 */
+	public void forEach(ObjIntConsumer<String> action) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				action.accept(keys[i], counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Grow the table once so it holds a number of keys without enlarging again
+	 * @param capacity number of keys expected
+	 */
+	public void ensureCapacity(int capacity) {
+		capacityCheck(capacity);
+
+		int tableSize = keys.length;
+		while (tableSize * MAX_LOAD < capacity) {
+			tableSize <<= 1;
+		}
+
+		if (tableSize > keys.length) {
+			resize(tableSize);
+		}
+	}
+
+	/**
+	 * Double the arrays and re-place every key
+	 */
+	private void enlargeTable() {
+		resize(keys.length << 1);
+	}
+
+	/**
+	 * Move every key into arrays of a larger length
+	 * Counts and hashes are copied directly; nothing is re-incremented or rehashed
+	 * @param newSize power of two length
+	 */
+	private void resize(int newSize) {
+		String[] oldKeys = keys;
+		int[] oldCounts = counts;
+		int[] oldHashes = hashes;
+		sizeCheck(newSize);
+		allocate(newSize);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				// live key -- find its first free slot in the new arrays
+				int index = oldHashes[i] & mask;
+				while (keys[index] != null) {
+					index = (index + 1) & mask;
+				}
+				keys[index] = oldKeys[i];
+				counts[index] = oldCounts[i];
+				hashes[index] = oldHashes[i];
+			}
+		}
+	}
+
+	/**
+	 * Remove every key
+	 */
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = null;
+			counts[i] = 0;
+		}
+
+		numberOfEntries = 0;
+	}
+
+	/**
+	 * Check if table is empty
+	 * @return true if empty
+	 */
+	public boolean isEmpty() {
+		return numberOfEntries == 0;
+	}
+
+	/**
+	 * Get the number of keys in the table
+	 * @return size
+	 */
+	public int getSize() {
+		return numberOfEntries;
+	}
+
+	/**
+	 * Spread the high bits of a hash into the low bits the mask keeps
+	 * @param hash raw hash code
+	 * @return mixed hash
+	 */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -9,6 +9,8 @@ public class DataWrapper implements Comparable<DataWrapper>{
 
 	private String data;  // data to store
 	private int count;  // how many of this object are contained in the ADT entry
+	private int hash;  // cached sdbm hash of data
+	private boolean hashed;  // true once hash holds the hash of the current data
 	
 	/**
 	 * Default Constructor - count to 0
@@ -38,11 +40,16 @@ public class DataWrapper implements Comparable<DataWrapper>{
 //		return data.hashCode();  // 1:56 runtime
 		
 		
-		// sdbm hash   1:51 runtime
-		int hash = 0;
+		// sdbm hash   1:51 runtime -- computed once, then cached
+		if (!hashed) {
+			int h = 0;
 
-		for(int i = 0; i < data.length(); i++) {
-			hash = data.charAt(i) + (hash << 6) + (hash << 16) - hash;
+			for(int i = 0; i < data.length(); i++) {
+				h = data.charAt(i) + (h << 6) + (h << 16) - h;
+			}
+
+			hash = h;
+			hashed = true;
 		}
 
 		return hash;
@@ -84,6 +91,7 @@ public class DataWrapper implements Comparable<DataWrapper>{
 	 */
 	public void setData(String data) {
 		this.data = data;
+		hashed = false;  // cached hash belonged to the old data
 	}
 	
 	/**
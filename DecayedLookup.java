@@ -0,0 +1,208 @@
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * A LookupInterface that ranks by exponentially decayed popularity instead of count
+ * An add at time t is worth amount * e^(-lambda * (now - t)) at time now; rather than
+ * shrinking every score as time passes, each add is scaled up by e^(lambda * (t - base))
+ * and every score shares the same e^(-lambda * (now - base)) factor, which does not
+ * change the order -- so a tick of time touches nothing
+ * Before the scaled scores can grow out of range the base is moved up to the present
+ * and every score is scaled down once, which happens rarely enough to be O(1) amortized
+ * lookupCount still reports the plain number of times a string was seen
+ * @author Zachary Zampa
+ * @since 2019/05/22
+ *
+ */
+
+
+public class DecayedLookup implements LookupInterface {
+
+	// Lookup Properties
+	private Dictionary<String, ScoredEntry> entries;  // string to its entry
+	private OrderStatisticTree<ScoredEntry> store;  // entries by scaled score
+	private double lambda;  // decay rate per millisecond
+	private long base;  // time the scaled scores are relative to
+	private LongSupplier clock;  // current time in milliseconds
+	private static final long DEFAULT_HALF_LIFE = 60 * 60 * 1000;  // default half life -- one hour
+	private static final double RENORMALIZE_AT = 64;  // exponent that triggers moving the base -- scales stay under e^64
+	private static final int DEFAULT_CAPACITY = 100000;  // default capacity
+
+
+	/**
+	 * Empty Constructor -- scores halve every hour
+	 */
+	public DecayedLookup() {
+		this(DEFAULT_HALF_LIFE);
+	}
+
+	/**
+	 * Half life based Constructor
+	 * @param halfLifeMillis milliseconds for a score to halve
+	 */
+	public DecayedLookup(long halfLifeMillis) {
+		this(halfLifeMillis, System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructor with a specific clock
+	 * @param halfLifeMillis milliseconds for a score to halve
+	 * @param clock current time in milliseconds
+	 */
+	DecayedLookup(long halfLifeMillis, LongSupplier clock) {
+		entries = new Dictionary<>(DEFAULT_CAPACITY, false, true);
+		store = new OrderStatisticTree<>();
+		lambda = Math.log(2) / halfLifeMillis;
+		this.clock = clock;
+		base = clock.getAsLong();
+	}
+
+	@Override
+	public void addString(int amount, String s) {
+		long now = clock.getAsLong();
+		if (lambda * (now - base) > RENORMALIZE_AT) {
+			// scale about to grow too large -- move the base first
+			renormalize(now);
+		}
+
+		double scaled = amount * Math.exp(lambda * (now - base));
+		ScoredEntry entry = entries.getValue(s);
+
+		if (entry == null) {
+			entry = new ScoredEntry(s);
+			entries.add(s, entry);
+		} else {
+			store.remove(entry);  // its key in the tree is about to change
+		}
+
+		entry.score += scaled;
+		entry.count += amount;
+		store.add(entry);
+	}
+
+	/**
+	 * Get the decayed score of a string as of now
+	 * @param s string to look up
+	 * @return score, or 0 if never added
+	 */
+	public double lookupScore(String s) {
+		ScoredEntry entry = entries.getValue(s);
+
+		if (entry == null) {
+			return 0;
+		}
+
+		return entry.score * Math.exp(-lambda * (clock.getAsLong() - base));
+	}
+
+	@Override
+	public int lookupCount(String s) {
+		ScoredEntry entry = entries.getValue(s);
+		return entry == null ? 0 : entry.count;
+	}
+
+	@Override
+	public String lookupPopularity(int n) {
+		return store.getNMax(n).key;
+	}
+
+	@Override
+	public DataWrapper[] topK(int k) {
+		return lookupPopularityRange(0, k);
+	}
+
+	@Override
+	public DataWrapper[] lookupPopularityRange(int from, int to) {
+		to = Math.min(to, numEntries());  // a range past the end is cut short
+
+		if (from < 0 || from >= to) {
+			return new DataWrapper[0];
+		}
+
+		ScoredEntry[] scored = new ScoredEntry[to - from];
+		store.getNMaxRange(from, scored);
+
+		DataWrapper[] range = new DataWrapper[scored.length];
+		for (int i = 0; i < scored.length; i++) {
+			range[i] = new DataWrapper(scored[i].key, scored[i].count);
+		}
+		return range;
+	}
+
+	@Override
+	public int lookupRank(String s) {
+		ScoredEntry entry = entries.getValue(s);
+		return entry == null ? -1 : store.getRank(entry);
+	}
+
+	/**
+	 * Scans the entries in score order; a PrefixIndex needs counts that only grow
+	 */
+	@Override
+	public DataWrapper[] lookupPrefix(String prefix, int k) {
+		ScoredEntry[] all = new ScoredEntry[numEntries()];
+		store.getNMaxRange(0, all);
+
+		// already in score order -- keep the first k matches
+		DataWrapper[] matches = new DataWrapper[Math.max(0, Math.min(k, all.length))];
+		int found = 0;
+		for (int i = 0; i < all.length && found < matches.length; i++) {
+			if (all[i].key.startsWith(prefix)) {
+				matches[found++] = new DataWrapper(all[i].key, all[i].count);
+			}
+		}
+
+		return found == matches.length ? matches : Arrays.copyOf(matches, found);
+	}
+
+	@Override
+	public int numEntries() {
+		return entries.getSize();
+	}
+
+	/**
+	 * Move the base to the present and scale every score down to match
+	 * The tree is rebuilt, since scores that underflow to zero can tie and reorder
+	 * @param now new base
+	 */
+	private void renormalize(long now) {
+		double factor = Math.exp(-lambda * (now - base));
+		ScoredEntry[] all = new ScoredEntry[numEntries()];
+		store.getNMaxRange(0, all);
+
+		store.clear();
+		for (ScoredEntry entry : all) {
+			entry.score *= factor;
+			store.add(entry);
+		}
+
+		base = now;
+	}
+
+	private static class ScoredEntry implements Comparable<ScoredEntry> {
+		private String key;
+		private double score;  // decayed score scaled to the base time
+		private int count;  // plain count
+
+		/**
+		 * ScoredEntry constructor
+		 * @param key string being scored
+		 */
+		private ScoredEntry(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public int compareTo(ScoredEntry other) {
+			int result = Double.compare(score, other.score);
+
+			// equal scores rank alphabetically, as DataWrapper does for counts
+			if (result == 0) {
+				result = other.key.compareTo(key);
+			}
+
+			return result;
+		}
+	}
+
+}
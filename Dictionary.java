@@ -1,7 +1,15 @@
 /**
- * A hashed, linear probing dictionary
- * Quadratic probing methods are available and commented out
- * For the capacity of the default dictionary, linear was faster
+ * A hashed dictionary that uses Robin Hood probing
+ * Each entry remembers how far it sits from its home index; an insert that
+ * has travelled further than the resident entry takes the slot and carries
+ * the resident on, which keeps probe lengths short and even at high loads
+ * Removal shifts the rest of the cluster back a slot, so there are no tombstones
+ * In incremental resize mode the old table is kept beside the new one and each
+ * operation migrates a few buckets, so no single add pays for the whole rehash
+ * In power of two mode the table length is a power of two and the hash is
+ * mixed and masked, so neither sizing nor indexing needs a prime or a modulo
+ * Every entry stores its key's full hash; probes compare hashes before calling
+ * equals, and resizes re-place entries without hashing any key again
  * @author Zachary Zampa
  * @since 2019/05/01
  *
@@ -14,14 +22,19 @@ public class Dictionary<K, V> {
 
 	// Dictionary Properties
 	private int numberOfEntries;  // number of entries in the dictionary
-	private static final int DEFAULT_CAPACITY = 1000000;  // default capacity -- must be prime
+	private static final int DEFAULT_CAPACITY = 1000000;  // default capacity -- rounded up to a prime or power of two
 	private static final int MAX_CAPACITY = 10000000;  // max capacity = 10^7
 	private TableEntry<K, V>[] dictionary;
 	@SuppressWarnings("unused")
-	private int tableSize;  // must be prime
+	private int tableSize;  // must be prime, or a power of two in power of two mode
 	private static final int MAX_SIZE = 2 * MAX_CAPACITY;  // max capacity of hash table
 	private boolean integrityFlag = false;   // checks the integrity of the table
-	private static final double MAX_LOAD = 0.5;  // How much of the table can be filled
+	private static final double MAX_LOAD = 0.8;  // How much of the table can be filled
+	private boolean incrementalResize;  // migrate a few buckets per operation instead of all at once
+	private TableEntry<K, V>[] oldDictionary;  // table being drained; null when no resize is running
+	private int migrateIndex;  // buckets of oldDictionary below this index have been migrated
+	private static final int MIGRATE_STEP = 16;  // buckets migrated per operation
+	private boolean powerOfTwo;  // power of two table with mixed, masked hashes instead of a prime table
 
 
 	/**
@@ -36,18 +49,40 @@ public class Dictionary<K, V> {
 	 * @param size size to make the dictionary
 	 */
 	public Dictionary(int size) {
+		this(size, false);
+	}
+
+	/**
+	 * Size and resize mode based Constructor
+	 * @param size size to make the dictionary
+	 * @param incrementalResize true to spread each resize over later operations
+	 */
+	public Dictionary(int size, boolean incrementalResize) {
+		this(size, incrementalResize, false);
+	}
+
+	/**
+	 * Size, resize mode and table layout based Constructor
+	 * @param size size to make the dictionary
+	 * @param incrementalResize true to spread each resize over later operations
+	 * @param powerOfTwo true for a power of two table with mask indexing
+	 */
+	public Dictionary(int size, boolean incrementalResize, boolean powerOfTwo) {
 		// check if size exceeds max Capacity
 		capacityCheck(size);
 		numberOfEntries = 0;
+		this.powerOfTwo = powerOfTwo;
 
-		// ensure tableSize is a prime number, and one under the Max size
-		int tableSize = primeGenerator(size);
+		// ensure tableSize is a prime number or power of two, and one under the Max size
+		int tableSize = tableSizeFor(size);
 		sizeCheck(tableSize);
 
 		// Cast new array
 		@SuppressWarnings("unchecked")
 		TableEntry<K, V>[] tmp = (TableEntry<K, V>[]) new TableEntry[tableSize];
 		dictionary = tmp;
+		this.incrementalResize = incrementalResize;
+		oldDictionary = null;
 		integrityFlag = true;
 	}
 
@@ -75,6 +110,23 @@ public class Dictionary<K, V> {
 		}
 	}
 
+	/**
+	 * Pick the table length for at least num slots in the current layout
+	 * @param num minimum length
+	 * @return next prime, or next power of two in power of two mode
+	 */
+	private int tableSizeFor(int num) {
+		if (powerOfTwo) {
+			int size = 1;
+			while (size < num) {
+				size <<= 1;
+			}
+			return size;
+		}
+
+		return primeGenerator(num);
+	}
+
 	/**
 	 * Generate the next prime number after / = the number
 	 * @param num integer
@@ -152,23 +204,31 @@ public class Dictionary<K, V> {
 			System.exit(1); // exit with an error code
 		}
 
+		migrateStep();  // pay off part of any running resize
+
 		V oldV;  // old value to return
-		int index = collisionCheck(getHashIndex(key), key);  // figure out where the key should be
+		int hash = key.hashCode();  // hashed once for the whole operation
+		int oldIndex = searchOld(hash, key);
 
-		if (dictionary[index] == null || dictionary[index].wasRemoved()) {
-			// key not found -- insert
-			dictionary[index] = new TableEntry<>(key, value);
-			numberOfEntries++;
-			oldV = null;  // null since no old value
+		if (oldIndex != -1) {
+			// key still lives in the table being drained -- replace it there
+			oldV = oldDictionary[oldIndex].getValue();
+			oldDictionary[oldIndex].setValue(value);
 		} else {
-			// key was found -- replace
-			oldV = dictionary[index].getValue();  // get old value
-			dictionary[index].setValue(value);  // add new value
+			oldV = robinHoodInsert(dictionary, hash, key, value);  // place or replace the key
+			if (oldV == null) {
+				// key was inserted
+				numberOfEntries++;
+			}
 		}
 
 		// check if dictionary can take more additions
 		if (numberOfEntries > MAX_LOAD * dictionary.length) {
-			enlargeDic();
+			if (incrementalResize) {
+				startResize();
+			} else {
+				enlargeDic();
+			}
 		}
 
 		return oldV;
@@ -180,23 +240,99 @@ public class Dictionary<K, V> {
 	private void enlargeDic() {
 		TableEntry<K, V>[] oldDic = dictionary;
 		int oldSize = dictionary.length;
-		int newSize = primeGenerator(oldSize + oldSize);
+		int newSize = tableSizeFor(oldSize + oldSize);
 		sizeCheck(newSize);
 
 		@SuppressWarnings("unchecked")
 		TableEntry<K, V>[] tmpDic = (TableEntry<K, V>[]) new TableEntry[newSize];
 		dictionary = tmpDic;
-		numberOfEntries = 0; // Reset to 0; since re-adding will increase this to correct number
 
-		// Re-add all non-null and non-empty positions
+		// Re-place all non-null positions with their stored hashes
 		for (int i = 0; i < oldSize; i++) {
-			if ((oldDic[i] != null) && oldDic[i].isHere()) {
-				// not null or nonempty so add
-				add(oldDic[i].getKey(), oldDic[i].getValue());	
+			if (oldDic[i] != null) {
+				// not null so re-place
+				robinHoodInsert(dictionary, oldDic[i].getHash(), oldDic[i].getKey(), oldDic[i].getValue());
 			}
 		} 
 	}
 
+	/**
+	 * Begin an incremental resize; the current table becomes the one being drained
+	 */
+	private void startResize() {
+		if (oldDictionary != null) {
+			// new table filled before the last resize finished -- finish it now
+			finishResize();
+		}
+
+		int newSize = tableSizeFor(dictionary.length + dictionary.length);
+		sizeCheck(newSize);
+
+		@SuppressWarnings("unchecked")
+		TableEntry<K, V>[] tmpDic = (TableEntry<K, V>[]) new TableEntry<?, ?>[newSize];
+		oldDictionary = dictionary;
+		dictionary = tmpDic;
+		migrateIndex = 0;
+	}
+
+	/**
+	 * Migrate the next few buckets of the table being drained
+	 */
+	private void migrateStep() {
+		if (oldDictionary != null) {
+			migrate(Math.min(migrateIndex + MIGRATE_STEP, oldDictionary.length));
+		}
+	}
+
+	/**
+	 * Migrate every remaining bucket of the table being drained
+	 */
+	private void finishResize() {
+		migrate(oldDictionary.length);
+	}
+
+	/**
+	 * Copy live entries from the table being drained up to an index
+	 * Migrated buckets are left in place so probe sequences through them still work;
+	 * anything below migrateIndex is simply ignored from then on
+	 * @param end index to stop before
+	 */
+	private void migrate(int end) {
+		for (; migrateIndex < end; migrateIndex++) {
+			TableEntry<K, V> entry = oldDictionary[migrateIndex];
+			if (entry != null && entry.getValue() != null) {
+				// live entry -- copy it across
+				robinHoodInsert(dictionary, entry.getHash(), entry.getKey(), entry.getValue());
+			}
+		}
+
+		if (migrateIndex == oldDictionary.length) {
+			// drained -- drop the old table
+			oldDictionary = null;
+		}
+	}
+
+	/**
+	 * Search the table being drained for a key that has not been migrated yet
+	 * @param hash hash code of key
+	 * @param key key to look for
+	 * @return index in oldDictionary, or -1 if no resize is running or the key is not live there
+	 */
+	private int searchOld(int hash, K key) {
+		if (oldDictionary == null) {
+			return -1;
+		}
+
+		int index = search(oldDictionary, hash, key);
+
+		if (index < migrateIndex || oldDictionary[index].getValue() == null) {
+			// already migrated, removed, or never there
+			return -1;
+		}
+
+		return index;
+	}
+
 	/**
 	 * Remove the value that corresponds to the specified key
 	 * @param key to look for
@@ -204,16 +340,25 @@ public class Dictionary<K, V> {
 	 */
 	public V remove(K key) {
 		checkInit();
+		migrateStep();
 		V removedV = null;  // initially nothing is removed
 
-		int index = getHashIndex(key);  // get hash index
-		index = search(index, key);  // search and return true index
+		int hash = key.hashCode();  // hashed once for the whole operation
+		int index = search(dictionary, hash, key);  // search and return true index
 
 		if (index != -1) {
 			// key is found -- remove
 			removedV = dictionary[index].getValue();  // get value so it can be returned
-			dictionary[index].setRemoved();  // set index to removed not null
+			backwardShift(index);  // close the gap so no tombstone is left
 			numberOfEntries--;  // lower number of entries in dictionary
+		} else {
+			index = searchOld(hash, key);
+			if (index != -1) {
+				// key is found in the table being drained -- null the value so it is never migrated
+				removedV = oldDictionary[index].getValue();
+				oldDictionary[index].setValue(null);
+				numberOfEntries--;
+			}
 		}
 
 		return removedV;
@@ -229,80 +374,108 @@ public class Dictionary<K, V> {
 			dictionary[i] = null;  // set each to null
 		}
 
+		oldDictionary = null;  // abandon any running resize
 		numberOfEntries = 0;
 	}
 
 	/**
-	 * Check if their are collisions and if so look for empty spot
-	 * @param index index to add to
+	 * Walk the probe sequence for key; replace its value if it is found,
+	 * otherwise insert it, displacing any entry that is closer to its home
+	 * @param table table to insert into
+	 * @param hash hash code of key
 	 * @param key key to add
-	 * @return free index or index containing same value as key
+	 * @param value value to add
+	 * @return old value, or null if the key was inserted
 	 */
-	private int collisionCheck(int index, K key) {
-		int freeIndex = -1;
-		boolean isSame = false;
-//		int increment = 1;  // used with quadratic probing
-
-		// search for an empty spot and if there is already the value
-		while (!isSame && dictionary[index] != null) {
-			if (dictionary[index].isHere()) {
-				// an entry is here
-				if (key.equals(dictionary[index].getKey())) {
-					// key found and same value
-					isSame = true;  
-				} else {
-					index = (index + 1) % dictionary.length;  // conduct linear probing
-					// conduct quadratic probing
-//					index = (index + increment) % dictionary.length;
-//					increment = increment + 2;
-				}
-			} else {
-				// an entry was removed from here; carry on, but save position
-				if (freeIndex == -1) {
-					// a free index has not been found yet
-					freeIndex = index;
-				}
-				index = (index + 1) % dictionary.length; // conduct linear probing
-				// conduct quadratic probing
-//				index = (index + increment) % dictionary.length;
-//				increment = increment + 2;
+	private V robinHoodInsert(TableEntry<K, V>[] table, int hash, K key, V value) {
+		int index = getHashIndex(hash, table.length);
+		int probeLength = 0;  // distance travelled from the home index
+
+		// look for the key until an entry closer to home than us is met
+		while (table[index] != null) {
+			if (table[index].getProbeLength() < probeLength) {
+				// the key cannot be further along -- it is not here
+				break;
+			}
+			if (table[index].getHash() == hash && key.equals(table[index].getKey())) {
+				// key found and same value -- replace
+				V oldV = table[index].getValue();
+				table[index].setValue(value);
+				return oldV;
 			}
+			index = nextIndex(table, index);
+			probeLength++;
 		}
 
-		if (freeIndex == -1 || isSame) {
-			// no free indexes, or already contained in dictionary
-			return index;
-		} else {
-			// not contained yet; and room exists
-			return freeIndex;
+		// key not found -- insert, taking from the rich to give to the poor
+		TableEntry<K, V> carry = new TableEntry<>(key, value, hash, probeLength);
+		while (table[index] != null) {
+			if (table[index].getProbeLength() < carry.getProbeLength()) {
+				// resident is closer to home -- swap it out and carry it on
+				TableEntry<K, V> tmp = table[index];
+				table[index] = carry;
+				carry = tmp;
+			}
+			index = nextIndex(table, index);
+			carry.setProbeLength(carry.getProbeLength() + 1);
 		}
+
+		table[index] = carry;
+		return null;
 	}
 
 	/**
-	 * Search for the key in the dictionary
-	 * @param index index to look for
+	 * Empty a slot by shifting the rest of its cluster back one slot
+	 * Stops at an empty slot or an entry that already sits at its home
+	 * @param index index to empty
+	 */
+	private void backwardShift(int index) {
+		int next = nextIndex(dictionary, index);
+
+		while (dictionary[next] != null && dictionary[next].getProbeLength() > 0) {
+			// entry can move one step closer to home
+			dictionary[index] = dictionary[next];
+			dictionary[index].setProbeLength(dictionary[index].getProbeLength() - 1);
+			index = next;
+			next = nextIndex(dictionary, next);
+		}
+
+		dictionary[index] = null;
+	}
+
+	/**
+	 * Search for the key in a table
+	 * @param table table to search
+	 * @param hash hash code of key
 	 * @param key key to look for
 	 * @return true index of key or -1
 	 */
-	private int search(int index, K key) {
-		boolean isHere = false;
-//		int increment = 1;  // for quadratic probing
-		int result = -1;
+	private int search(TableEntry<K, V>[] table, int hash, K key) {
+		int index = getHashIndex(hash, table.length);
+		int probeLength = 0;  // distance travelled from the home index
 
-		while (!isHere && dictionary[index] != null) {
-			if (dictionary[index].isHere() && dictionary[index].getKey().equals(key)) {
+		// an entry closer to home than us means the key is not in the table
+		while (table[index] != null && table[index].getProbeLength() >= probeLength) {
+			if (table[index].getHash() == hash && table[index].getKey().equals(key)) {
 				// key was found in dictionary
-				isHere = true; 
-				result = index;  // set result to index
-			} else {
-				index = (index + 1) % dictionary.length;  // conduct linear probing
-				// perform quadratic probing
-//				index = (index + increment) % dictionary.length;
-//				increment = increment + 2;
+				return index;
 			}
+			index = nextIndex(table, index);  // conduct linear probing
+			probeLength++;
 		}
 
-		return result;
+		return -1;
+	}
+
+	/**
+	 * Next index in the probe sequence
+	 * @param table table being probed
+	 * @param index current index
+	 * @return following index, wrapping at the end of the table
+	 */
+	private int nextIndex(TableEntry<K, V>[] table, int index) {
+		index++;
+		return index == table.length ? 0 : index;  // compare and wrap; cheaper than a modulo
 	}
 
 	/**
@@ -313,13 +486,20 @@ public class Dictionary<K, V> {
 	public V getValue(K key) {
 		checkInit();
 
+		migrateStep();
 		V result = null;
-		int index = getHashIndex(key);
-		index = search(index, key);
+		int hash = key.hashCode();  // hashed once for the whole operation
+		int index = search(dictionary, hash, key);
 
 		if (index != -1) {
 			// key found; get value
 			result = dictionary[index].getValue();
+		} else {
+			// may not have been migrated yet
+			index = searchOld(hash, key);
+			if (index != -1) {
+				result = oldDictionary[index].getValue();
+			}
 		}
 
 		return result;
@@ -353,15 +533,21 @@ public class Dictionary<K, V> {
 
 	/**
 	 * Find the index the item belongs; uses hashing
-	 * @param key item to look for
+	 * @param hash hash code of the item to look for
+	 * @param length length of the table being indexed
 	 * @return hashed index
 	 */
-	private int getHashIndex(K key) {
-		int index = key.hashCode() % dictionary.length;
+	private int getHashIndex(int hash, int length) {
+		if (powerOfTwo) {
+			// mix so the low bits the mask keeps depend on the whole hash
+			return mix(hash) & (length - 1);
+		}
+
+		int index = hash % length;
 
 		if (index < 0) {
 			// out of bounds; add length
-			index = index + dictionary.length;
+			index = index + length;
 		}
 
 		return index;
@@ -369,29 +555,38 @@ public class Dictionary<K, V> {
 
 	
 
+	/**
+	 * Murmur3 32 bit finalizer -- every input bit affects every output bit
+	 * @param hash raw hash code
+	 * @return mixed hash
+	 */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
 	private static class TableEntry<Ky, Va> {
 		private Ky key;
 		private Va value;
-		private Status stat;
-		private enum Status {CURRENT, REMOVED} // Possible status
+		private int hash;  // full hash code of key
+		private int probeLength;  // distance from the home index
 
 		/**
 		 * Table constructor
 		 * @param key key to search for
 		 * @param value value to search for
+		 * @param hash full hash code of key
+		 * @param probeLength distance from the home index
 		 */
-		private TableEntry(Ky key, Va value) {
+		private TableEntry(Ky key, Va value, int hash, int probeLength) {
 			this.key = key;
 			this.value = value;
-			stat = Status.CURRENT;
-		}
-
-		/**
-		 * Was removed from the dictionary
-		 * @return sets spot to removed
-		 */
-		public boolean wasRemoved() {
-			return stat == Status.REMOVED;
+			this.hash = hash;
+			this.probeLength = probeLength;
 		}
 
 		// getters and setters
@@ -400,13 +595,13 @@ public class Dictionary<K, V> {
 			value = newVal;
 		}
 
-		// set state of the status of entry position to removed
-		private void setRemoved()
-		{
-			key = null;
-			value = null;
-			stat = Status.REMOVED; // Entry is deleted from table
-		} 
+		/**
+		 * Set the distance from the home index
+		 * @param probeLength new distance
+		 */
+		private void setProbeLength(int probeLength) {
+			this.probeLength = probeLength;
+		}
 
 		/**
 		 * Get the key
@@ -427,12 +622,21 @@ public class Dictionary<K, V> {
 		} 
 
 		/**
-		 * Return true if entry exists in the hash table
+		 * Get the stored hash code of the key
+		 * @return
+		 */
+		private int getHash()
+		{
+			return hash;
+		} 
+
+		/**
+		 * Get the distance from the home index
 		 * @return
 		 */
-		private boolean isHere()
+		private int getProbeLength()
 		{
-			return stat == Status.CURRENT;
+			return probeLength;
 		} 
 
 
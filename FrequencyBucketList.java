@@ -0,0 +1,309 @@
+/**
+ * Ranking store that groups entries into one bucket per count, the way O(1) LFU
+ * caches do; buckets form a doubly linked list from the highest count down
+ * A +1 finds the neighbouring bucket in O(1); other amounts walk the list one
+ * bucket at a time, so they cost at most the number of counts skipped
+ * Each bucket keeps its keys in a small order statistic tree for the alphabetical
+ * tie-break, so moving an entry costs O(log m) in the size m of the buckets involved;
+ * the popular entries that take most of the increments sit in tiny buckets
+ * A rank query walks the buckets using their sizes as prefix sums, then looks
+ * the position up in the bucket it lands in
+ * @author Zachary Zampa
+ * @since 2019/05/18
+ *
+ */
+
+
+public class FrequencyBucketList implements RankingInterface<DataWrapper> {
+
+	// Storage Properties
+	private Dictionary<String, Entry> entries;  // key to its entry
+	private Bucket highest;  // bucket with the largest count
+	private Bucket lowest;  // bucket with the smallest count
+	private int numberOfEntries;  // number of entries
+	private static final int DEFAULT_CAPACITY = 100000;  // default capacity
+
+
+	/**
+	 * Empty Constructor
+	 */
+	public FrequencyBucketList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Size based Constructor
+	 * @param size number of entries expected
+	 */
+	public FrequencyBucketList(int size) {
+		entries = new Dictionary<>(size, false, true);
+		highest = null;
+		lowest = null;
+		numberOfEntries = 0;
+	}
+
+	@Override
+	public void add(DataWrapper item) {
+		Entry entry = new Entry(item.getData());
+		entries.add(entry.key, entry);
+
+		if (lowest == null) {
+			// first entry -- first bucket
+			highest = new Bucket(item.getCount());
+			lowest = highest;
+			highest.append(entry);
+		} else {
+			// new entries usually land in the lowest bucket, so search from there
+			findBucket(lowest, item.getCount()).append(entry);
+		}
+
+		numberOfEntries++;
+	}
+
+	@Override
+	public void updateEntry(DataWrapper oldItem, DataWrapper newItem) {
+		Entry entry = entries.getValue(newItem.getData());
+		Bucket from = entry.bucket;
+
+		if (from.count == newItem.getCount()) {
+			// count did not change
+			return;
+		}
+
+		Bucket to = findBucket(from, newItem.getCount());  // a neighbour for a +1
+		from.removeEntry(entry);
+		to.append(entry);
+
+		if (from.live == 0) {
+			// bucket emptied -- drop it from the list
+			unlink(from);
+		}
+	}
+
+	@Override
+	public DataWrapper getNMax(int n) {
+		Bucket bucket = highest;
+
+		// bucket sizes are prefix sums over the ranks
+		while (bucket != null && n >= bucket.live) {
+			n -= bucket.live;
+			bucket = bucket.lower;
+		}
+
+		if (bucket == null || n < 0) {
+			return null;  // rank out of range
+		}
+
+		return new DataWrapper(bucket.getAlphabetical(n), bucket.count);  // ties are broken alphabetically
+	}
+
+	@Override
+	public void getNMaxRange(int from, DataWrapper[] range) {
+		Bucket bucket = highest;
+
+		// skip the buckets above the range
+		while (bucket != null && from >= bucket.live) {
+			from -= bucket.live;
+			bucket = bucket.lower;
+		}
+
+		// copy out bucket by bucket; from is now the position in the first bucket
+		int filled = 0;
+		while (filled < range.length) {
+			for (int i = from; i < bucket.live && filled < range.length; i++) {
+				range[filled++] = new DataWrapper(bucket.getAlphabetical(i), bucket.count);
+			}
+			from = 0;
+			bucket = bucket.lower;
+		}
+	}
+
+	@Override
+	public int getRank(DataWrapper item) {
+		Entry entry = entries.getValue(item.getData());
+
+		if (entry == null) {
+			return -1;  // not stored
+		}
+
+		// everything in the buckets above ranks higher
+		int rank = 0;
+		for (Bucket bucket = entry.bucket.higher; bucket != null; bucket = bucket.higher) {
+			rank += bucket.live;
+		}
+
+		return rank + entry.bucket.getPosition(entry.key);  // then the keys before it alphabetically
+	}
+
+	@Override
+	public void rebuild(DataWrapper[] items) {
+		entries = new Dictionary<>(Math.max(items.length, 1), false, true);
+		highest = null;
+		lowest = null;
+		numberOfEntries = 0;
+
+		// largest first, so each item lands in the lowest bucket or just below it
+		for (DataWrapper item : items) {
+			add(item);
+		}
+	}
+
+	@Override
+	public int getSize() {
+		return numberOfEntries;
+	}
+
+	/**
+	 * Find the bucket for a count, creating it if it does not exist
+	 * Walks from a starting bucket, so a nearby count is found in O(1)
+	 * @param start bucket to walk from
+	 * @param count count to find
+	 * @return bucket holding count
+	 */
+	private Bucket findBucket(Bucket start, int count) {
+		Bucket bucket = start;
+
+		if (count >= bucket.count) {
+			// walk towards the higher counts
+			while (bucket.higher != null && bucket.higher.count <= count) {
+				bucket = bucket.higher;
+			}
+			if (bucket.count != count) {
+				bucket = linkAbove(bucket, new Bucket(count));
+			}
+		} else {
+			// walk towards the lower counts
+			while (bucket.lower != null && bucket.lower.count >= count) {
+				bucket = bucket.lower;
+			}
+			if (bucket.count != count) {
+				bucket = linkBelow(bucket, new Bucket(count));
+			}
+		}
+
+		return bucket;
+	}
+
+	/**
+	 * Link a new bucket directly above another
+	 * @param below existing bucket
+	 * @param bucket new bucket
+	 * @return the new bucket
+	 */
+	private Bucket linkAbove(Bucket below, Bucket bucket) {
+		bucket.lower = below;
+		bucket.higher = below.higher;
+		if (below.higher != null) {
+			below.higher.lower = bucket;
+		} else {
+			highest = bucket;
+		}
+		below.higher = bucket;
+		return bucket;
+	}
+
+	/**
+	 * Link a new bucket directly below another
+	 * @param above existing bucket
+	 * @param bucket new bucket
+	 * @return the new bucket
+	 */
+	private Bucket linkBelow(Bucket above, Bucket bucket) {
+		bucket.higher = above;
+		bucket.lower = above.lower;
+		if (above.lower != null) {
+			above.lower.higher = bucket;
+		} else {
+			lowest = bucket;
+		}
+		above.lower = bucket;
+		return bucket;
+	}
+
+	/**
+	 * Remove an empty bucket from the list
+	 * @param bucket bucket to remove
+	 */
+	private void unlink(Bucket bucket) {
+		if (bucket.higher != null) {
+			bucket.higher.lower = bucket.lower;
+		} else {
+			highest = bucket.lower;
+		}
+
+		if (bucket.lower != null) {
+			bucket.lower.higher = bucket.higher;
+		} else {
+			lowest = bucket.higher;
+		}
+	}
+
+	private static class Entry {
+		private String key;
+		private Bucket bucket;  // bucket that holds this entry
+
+		/**
+		 * Entry constructor
+		 * @param key string being counted
+		 */
+		private Entry(String key) {
+			this.key = key;
+		}
+	}
+
+	private static class Bucket {
+		private int count;  // count shared by every entry in the bucket
+		private OrderStatisticTree<String> members;  // keys, for the alphabetical tie-break
+		private int live;  // entries in the bucket
+		private Bucket higher;  // bucket with the next larger count
+		private Bucket lower;  // bucket with the next smaller count
+
+		/**
+		 * Bucket constructor
+		 * @param count count of every entry in the bucket
+		 */
+		private Bucket(int count) {
+			this.count = count;
+			members = new OrderStatisticTree<>();
+			live = 0;
+		}
+
+		/**
+		 * Add an entry to the bucket
+		 * @param entry entry to add
+		 */
+		private void append(Entry entry) {
+			members.add(entry.key);
+			entry.bucket = this;
+			live++;
+		}
+
+		/**
+		 * Take an entry out of the bucket
+		 * @param entry entry to remove
+		 */
+		private void removeEntry(Entry entry) {
+			members.remove(entry.key);
+			live--;
+		}
+
+		/**
+		 * Get the n'th entry of the bucket in alphabetical order
+		 * @param n position within the bucket
+		 * @return key at that position
+		 */
+		private String getAlphabetical(int n) {
+			return members.getNMax(live - 1 - n);  // tree ranks largest first
+		}
+
+		/**
+		 * Get the position of a key in the bucket in alphabetical order
+		 * @param key key in the bucket
+		 * @return position within the bucket
+		 */
+		private int getPosition(String key) {
+			return live - 1 - members.getRank(key);  // tree ranks largest first
+		}
+	}
+
+}
@@ -0,0 +1,406 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * A hashed dictionary that probes a group of 8 slots at a time
+ * Beside the keys and values it keeps one control byte per slot: the low 7 bits
+ * of the key's hash when the slot is full, or an EMPTY / DELETED marker
+ * A probe reads a whole group of control bytes as one long and matches all 8
+ * fingerprints at once with SWAR bit tricks, so keys are only touched when their
+ * fingerprint matches and a miss usually costs a single group read
+ * @author Zachary Zampa
+ * @since 2019/05/14
+ *
+ * @param <K>
+ * @param <V>
+ */
+
+
+public class GroupedDictionary<K, V> {
+
+	// Dictionary Properties
+	private int numberOfEntries;  // number of entries in the dictionary
+	private int numberOfDeleted;  // number of DELETED control bytes
+	private static final int DEFAULT_CAPACITY = 1000000;  // default capacity
+	private static final int MAX_CAPACITY = 10000000;  // max capacity = 10^7
+	private static final int MAX_SIZE = 1 << 25;  // max number of slots -- first power of two over 2 * MAX_CAPACITY
+	private static final double MAX_LOAD = 0.875;  // How much of the table can be used, deleted slots included
+	private static final int GROUP_WIDTH = 8;  // slots per group -- one long of control bytes
+	private boolean integrityFlag = false;   // checks the integrity of the table
+
+	// Table
+	private byte[] control;  // one control byte per slot
+	private Object[] keys;
+	private Object[] values;
+	private int groupMask;  // number of groups - 1
+	private int growthLimit;  // full + deleted slots allowed before a rehash
+
+	// Control bytes; a full slot holds its 7 bit fingerprint (0 - 127)
+	private static final byte EMPTY = (byte) 0x80;
+	private static final byte DELETED = (byte) 0xFE;
+
+	// SWAR constants
+	private static final long LSB = 0x0101010101010101L;  // lowest bit of every byte
+	private static final long MSB = 0x8080808080808080L;  // highest bit of every byte
+	private static final VarHandle GROUP = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+
+	/**
+	 * Empty Constructor
+	 */
+	public GroupedDictionary() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Size based Constructor
+	 * @param size number of entries expected
+	 */
+	public GroupedDictionary(int size) {
+		capacityCheck(size);
+		numberOfEntries = 0;
+
+		// smallest power of two number of slots that holds size under the max load
+		int slots = GROUP_WIDTH;
+		while (slots * MAX_LOAD < size) {
+			slots <<= 1;
+		}
+		sizeCheck(slots);
+		allocate(slots);
+		integrityFlag = true;
+	}
+
+	/**
+	 * Checks if the capacity exceeds the maximum capacity allowed
+	 * @param capacity size of dictionary
+	 */
+	private void capacityCheck(int capacity) {
+		if (capacity > MAX_CAPACITY) {
+			// size exceeds max capacity
+			System.out.printf("ERROR: Dictionary capacity [%d] exceeds limits", capacity);
+			System.exit(1);  // end program with error code
+		}
+	}
+
+	/**
+	 * Check if the size exceeds the maximum size allowed
+	 * @param size number of slots
+	 */
+	private void sizeCheck(int size) {
+		if (size > MAX_SIZE) {
+			// size exceeds max size
+			System.out.printf("ERROR: Dictionary size [%d] exceeds limits", size);
+			System.exit(1);  // end program with error code
+		}
+	}
+
+	/**
+	 * Check the initialization of the dictionary
+	 */
+	private void checkInit(){
+		// check if dictionary is valid
+		if (!integrityFlag) {
+			// integrity flag is false
+			System.out.println("The dictionary is corrupt");
+			System.exit(1);  // exit with error code
+		}
+	}
+
+	/**
+	 * Create fresh, empty arrays
+	 * @param slots power of two number of slots, at least one group
+	 */
+	private void allocate(int slots) {
+		control = new byte[slots];
+		for (int i = 0; i < slots; i++) {
+			control[i] = EMPTY;
+		}
+		keys = new Object[slots];
+		values = new Object[slots];
+		groupMask = slots / GROUP_WIDTH - 1;
+		growthLimit = (int) (MAX_LOAD * slots);
+		numberOfDeleted = 0;
+	}
+
+	/**
+	 * Add a key / value to the dictionary
+	 * @param key to add
+	 * @param value to add
+	 * @return null if empty; else old value
+	 */
+	public V add(K key, V value) {
+		checkInit();  // check initialization
+
+		// check for potential null values
+		if (key == null || value == null) {
+			// null value attempted
+			System.out.println("ERROR: Cannot add a null value");
+			System.exit(1); // exit with an error code
+		}
+
+		int hash = mix(key.hashCode());
+		int index = search(hash, key);
+
+		if (index != -1) {
+			// key was found -- replace
+			@SuppressWarnings("unchecked")
+			V oldV = (V) values[index];
+			values[index] = value;
+			return oldV;
+		}
+
+		// key not found -- make room if needed, then insert
+		if (numberOfEntries + numberOfDeleted >= growthLimit) {
+			rehash();
+		}
+		insert(hash, key, value);
+		numberOfEntries++;
+
+		return null;
+	}
+
+	/**
+	 * Place a key known not to be here into the first free slot of its probe sequence
+	 * @param hash mixed hash of key
+	 * @param key key to add
+	 * @param value value to add
+	 */
+	private void insert(int hash, Object key, Object value) {
+		int group = (hash >>> 7) & groupMask;
+		int step = 0;
+		long free;
+
+		// find the first group with an EMPTY or DELETED slot
+		while ((free = matchEmptyOrDeleted(loadGroup(group))) == 0) {
+			step++;
+			group = (group + step) & groupMask;  // triangular probing visits every group
+		}
+
+		int index = group * GROUP_WIDTH + firstSlot(free);
+		if (control[index] == DELETED) {
+			// reusing a deleted slot
+			numberOfDeleted--;
+		}
+		control[index] = fingerprint(hash);
+		keys[index] = key;
+		values[index] = value;
+	}
+
+	/**
+	 * Rebuild the table; doubles it unless most used slots are only DELETED markers
+	 */
+	private void rehash() {
+		byte[] oldControl = control;
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int slots = control.length;
+
+		if (numberOfEntries >= slots / 2) {
+			// really full -- grow
+			slots <<= 1;
+			sizeCheck(slots);
+		}
+		allocate(slots);
+
+		for (int i = 0; i < oldControl.length; i++) {
+			if (oldControl[i] >= 0) {
+				// full slot -- re-place it
+				insert(mix(oldKeys[i].hashCode()), oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	/**
+	 * Remove the value that corresponds to the specified key
+	 * @param key to look for
+	 * @return the removed value
+	 */
+	public V remove(K key) {
+		checkInit();
+		V removedV = null;  // initially nothing is removed
+
+		int index = search(mix(key.hashCode()), key);
+
+		if (index != -1) {
+			// key is found -- remove
+			@SuppressWarnings("unchecked")
+			V tmp = (V) values[index];
+			removedV = tmp;
+			keys[index] = null;
+			values[index] = null;
+
+			// a group that still has an EMPTY slot never made a probe go past it
+			if (matchEmpty(loadGroup(index / GROUP_WIDTH)) != 0) {
+				control[index] = EMPTY;
+			} else {
+				control[index] = DELETED;
+				numberOfDeleted++;
+			}
+			numberOfEntries--;
+		}
+
+		return removedV;
+	}
+
+	/**
+	 * Loop through removing every entry;
+	 */
+	public final void clear() {
+		checkInit();
+		allocate(control.length);
+		numberOfEntries = 0;
+	}
+
+	/**
+	 * Search for the key in the dictionary
+	 * @param hash mixed hash of key
+	 * @param key key to look for
+	 * @return index of key or -1
+	 */
+	private int search(int hash, Object key) {
+		int group = (hash >>> 7) & groupMask;
+		long pattern = LSB * fingerprint(hash);  // fingerprint copied into every byte
+		int step = 0;
+
+		while (true) {
+			long ctrl = loadGroup(group);
+
+			// check every slot whose fingerprint matches
+			for (long match = matchByte(ctrl, pattern); match != 0; match &= match - 1) {
+				int index = group * GROUP_WIDTH + firstSlot(match);
+				if (key.equals(keys[index])) {
+					return index;
+				}
+			}
+
+			if (matchEmpty(ctrl) != 0) {
+				// an EMPTY slot ends the probe sequence
+				return -1;
+			}
+
+			step++;
+			group = (group + step) & groupMask;  // triangular probing visits every group
+		}
+	}
+
+	/**
+	 * Get the value of the desired key
+	 * @param key key that corresponds to the value
+	 * @return value from key
+	 */
+	public V getValue(K key) {
+		checkInit();
+
+		V result = null;
+		int index = search(mix(key.hashCode()), key);
+
+		if (index != -1) {
+			// key found; get value
+			@SuppressWarnings("unchecked")
+			V tmp = (V) values[index];
+			result = tmp;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Return if dictionary contains key
+	 * @param key key too look for
+	 * @return true if contained
+	 */
+	public boolean contains(K key) {
+		return getValue(key) != null;  // if null then key was never found
+	}
+
+	/**
+	 * Check if dictionary is empty
+	 * @return true if empty
+	 */
+	public boolean isEmpty() {
+		return numberOfEntries == 0;
+	}
+
+	/**
+	 * Get the number of entries in dictionary
+	 * @return size
+	 */
+	public int getSize() {
+		return numberOfEntries;
+	}
+
+	/**
+	 * Read the 8 control bytes of a group as one long; slot i is byte i
+	 * @param group group index
+	 * @return control bytes
+	 */
+	private long loadGroup(int group) {
+		return (long) GROUP.get(control, group * GROUP_WIDTH);
+	}
+
+	/**
+	 * Find the bytes of a group equal to the pattern byte
+	 * May flag a byte just above a true match as well; callers confirm with equals
+	 * @param ctrl control bytes
+	 * @param pattern byte to find, copied into every byte
+	 * @return high bit set in each matching byte
+	 */
+	private static long matchByte(long ctrl, long pattern) {
+		long x = ctrl ^ pattern;  // matching bytes become zero
+		return (x - LSB) & ~x & MSB;
+	}
+
+	/**
+	 * Find the EMPTY bytes of a group
+	 * EMPTY is the only control byte with the high bit set and bit 1 clear
+	 * @param ctrl control bytes
+	 * @return high bit set in each EMPTY byte
+	 */
+	private static long matchEmpty(long ctrl) {
+		return ctrl & ~(ctrl << 6) & MSB;
+	}
+
+	/**
+	 * Find the EMPTY or DELETED bytes of a group
+	 * Both have the high bit set and bit 0 clear; full slots have the high bit clear
+	 * @param ctrl control bytes
+	 * @return high bit set in each free byte
+	 */
+	private static long matchEmptyOrDeleted(long ctrl) {
+		return ctrl & ~(ctrl << 7) & MSB;
+	}
+
+	/**
+	 * Slot within the group of the lowest flagged byte
+	 * @param match match mask from a matchX method
+	 * @return slot 0 - 7
+	 */
+	private static int firstSlot(long match) {
+		return Long.numberOfTrailingZeros(match) >>> 3;
+	}
+
+	/**
+	 * Control byte for a full slot
+	 * @param hash mixed hash
+	 * @return low 7 bits of the hash
+	 */
+	private static byte fingerprint(int hash) {
+		return (byte) (hash & 0x7F);
+	}
+
+	/**
+	 * Murmur3 32 bit finalizer -- every input bit affects every output bit
+	 * @param hash raw hash code
+	 * @return mixed hash
+	 */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+}
@@ -0,0 +1,195 @@
+import java.util.ArrayList;
+import java.util.function.Function;
+
+/**
+ * Rudimentary timing of the dictionary table layouts
+ * Compares prime sized tables (modulo indexing) against power of two tables
+ * (mixed and masked indexing), once with DataWrapper's sdbm hash and once
+ * with String.hashCode, on the same Project Gutenberg inputs as Controller
+ * GroupedDictionary is timed beside them with String keys; every layout is
+ * timed on lookups that hit and on lookups of words that are not in the table
+ * @author Zachary Zampa
+ * @since 2019/05/12
+ *
+ */
+public class HashBenchmark {
+
+	private static final int INITIAL_SIZE = 1000;  // small start so resizes are part of the cost
+	private static final int ROUNDS = 3;  // timed rounds per layout; the best is reported
+
+	/**
+	 * The table operations being timed, so every dictionary runs the same loops
+	 * @param <K>
+	 */
+	private interface Table<K> {
+		Integer getValue(K key);
+		void add(K key, Integer value);
+	}
+
+	public static void main(String[] args) {
+		String[] files = args.length > 0 ? args
+				: new String[] {"1.txt", "2.txt", "3.txt", "4.txt", "5.txt", "6.txt", "7.txt"};
+
+		for (String file : files) {
+			System.out.println("file " + file);
+			ArrayList<String> wordList = Controller.readFile(file);
+			ArrayList<String> missList = new ArrayList<>(wordList.size());
+			for (String w : wordList) {
+				missList.add(w + "#");  // the tokenizer never keeps a '#', so none of these are counted
+			}
+
+			// warm up every path once so the first layout is not penalized
+			timeLayout(wordList, missList, DataWrapper::new, false);
+			timeLayout(wordList, missList, DataWrapper::new, true);
+			timeLayout(wordList, missList, s -> s, false);
+			timeLayout(wordList, missList, s -> s, true);
+			timeGrouped(wordList, missList);
+
+			report("sdbm   prime  ", bestOf(wordList, missList, DataWrapper::new, false));
+			report("sdbm   pow2   ", bestOf(wordList, missList, DataWrapper::new, true));
+			report("String prime  ", bestOf(wordList, missList, s -> s, false));
+			report("String pow2   ", bestOf(wordList, missList, s -> s, true));
+			report("String grouped", bestOfGrouped(wordList, missList));
+		}
+	}
+
+	/**
+	 * Run a layout several times and keep the fastest times
+	 * @param wordList words to count
+	 * @param missList words that are never counted
+	 * @param wrap turns a word into a key
+	 * @param powerOfTwo table layout to use
+	 * @return milliseconds per insert, per hit and per miss
+	 */
+	private static <K> double[] bestOf(ArrayList<String> wordList, ArrayList<String> missList,
+			Function<String, K> wrap, boolean powerOfTwo) {
+		double[] best = timeLayout(wordList, missList, wrap, powerOfTwo);
+
+		for (int i = 1; i < ROUNDS; i++) {
+			keepBest(best, timeLayout(wordList, missList, wrap, powerOfTwo));
+		}
+
+		return best;
+	}
+
+	/**
+	 * Run GroupedDictionary several times and keep the fastest times
+	 * @param wordList words to count
+	 * @param missList words that are never counted
+	 * @return milliseconds per insert, per hit and per miss
+	 */
+	private static double[] bestOfGrouped(ArrayList<String> wordList, ArrayList<String> missList) {
+		double[] best = timeGrouped(wordList, missList);
+
+		for (int i = 1; i < ROUNDS; i++) {
+			keepBest(best, timeGrouped(wordList, missList));
+		}
+
+		return best;
+	}
+
+	/**
+	 * Lower each best time to the matching new time where it is faster
+	 * @param best times kept so far
+	 * @param times times of the latest round
+	 */
+	private static void keepBest(double[] best, double[] times) {
+		for (int i = 0; i < best.length; i++) {
+			best[i] = Math.min(best[i], times[i]);
+		}
+	}
+
+	/**
+	 * Time a fresh Dictionary of the given layout
+	 * @param wordList words to count
+	 * @param missList words that are never counted
+	 * @param wrap turns a word into a key
+	 * @param powerOfTwo table layout to use
+	 * @return milliseconds per insert, per hit and per miss
+	 */
+	private static <K> double[] timeLayout(ArrayList<String> wordList, ArrayList<String> missList,
+			Function<String, K> wrap, boolean powerOfTwo) {
+		Dictionary<K, Integer> dict = new Dictionary<>(INITIAL_SIZE, false, powerOfTwo);
+
+		return time(wordList, missList, wrap, new Table<K>() {
+			public Integer getValue(K key) {
+				return dict.getValue(key);
+			}
+
+			public void add(K key, Integer value) {
+				dict.add(key, value);
+			}
+		});
+	}
+
+	/**
+	 * Time a fresh GroupedDictionary
+	 * @param wordList words to count
+	 * @param missList words that are never counted
+	 * @return milliseconds per insert, per hit and per miss
+	 */
+	private static double[] timeGrouped(ArrayList<String> wordList, ArrayList<String> missList) {
+		GroupedDictionary<String, Integer> dict = new GroupedDictionary<>(INITIAL_SIZE);
+
+		return time(wordList, missList, s -> s, new Table<String>() {
+			public Integer getValue(String key) {
+				return dict.getValue(key);
+			}
+
+			public void add(String key, Integer value) {
+				dict.add(key, value);
+			}
+		});
+	}
+
+	/**
+	 * Count every word in an empty table, then look every word up again,
+	 * then look up as many words that are not there
+	 * @param wordList words to count
+	 * @param missList words that are never counted
+	 * @param wrap turns a word into a key
+	 * @param table empty table to fill
+	 * @return milliseconds per insert, per hit and per miss
+	 */
+	private static <K> double[] time(ArrayList<String> wordList, ArrayList<String> missList,
+			Function<String, K> wrap, Table<K> table) {
+		// Average time for insert
+		long startTime = System.nanoTime();
+		for (String w : wordList) {
+			K key = wrap.apply(w);
+			Integer count = table.getValue(key);
+			table.add(key, count == null ? 1 : count + 1);
+		}
+		long endTime = System.nanoTime();
+		double insert = ((endTime - startTime) / 1000000.0) / wordList.size();
+
+		// Average time for a lookup that hits
+		startTime = System.nanoTime();
+		for (String w : wordList) {
+			table.getValue(wrap.apply(w));
+		}
+		endTime = System.nanoTime();
+		double hit = ((endTime - startTime) / 1000000.0) / wordList.size();
+
+		// Average time for a lookup that misses
+		startTime = System.nanoTime();
+		for (String w : missList) {
+			table.getValue(wrap.apply(w));
+		}
+		endTime = System.nanoTime();
+		double miss = ((endTime - startTime) / 1000000.0) / missList.size();
+
+		return new double[] {insert, hit, miss};
+	}
+
+	/**
+	 * Print one layout's results
+	 * @param label layout name
+	 * @param times milliseconds per insert, per hit and per miss
+	 */
+	private static void report(String label, double[] times) {
+		System.out.println(label + ": " + times[0] + " milliseconds / insert, "
+				+ times[1] + " milliseconds / hit, " + times[2] + " milliseconds / miss");
+	}
+
+}
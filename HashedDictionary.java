@@ -29,6 +29,8 @@ public class HashedDictionary<K, V>
    private boolean integrityOK = false;
    private static final double MAX_LOAD_FACTOR = 0.5; // Fraction of hash table
                                                       // that can be filled
+   private boolean powerOfTwo;                        // Power of two table with mixed,
+                                                      // masked hash codes instead of a prime table
    
    public HashedDictionary()
    {
@@ -36,14 +38,20 @@ public class HashedDictionary<K, V>
    } // end default constructor
    
    public HashedDictionary(int initialCapacity)
+   {
+      this(initialCapacity, false); // Prime sized table
+   } // end constructor
+   
+   public HashedDictionary(int initialCapacity, boolean powerOfTwo)
    {
       initialCapacity = checkCapacity(initialCapacity);
       numberOfEntries = 0;    // Dictionary is empty
+      this.powerOfTwo = powerOfTwo;
       
       // Set up hash table:
-      // Initial size of hash table is same as initialCapacity if it is prime;
-      // otherwise increase it until it is prime size
-      int tableSize = getNextPrime(initialCapacity);
+      // Initial size of hash table is same as initialCapacity if it is prime
+      // (or a power of two); otherwise increase it until it is
+      int tableSize = getNextTableSize(initialCapacity);
       checkSize(tableSize);   // Check that size is not too large
       
       // The cast is safe because the new array contains null entries
@@ -178,6 +186,9 @@ public class HashedDictionary<K, V>
    
 	private int getHashIndex(K key)
 	{
+		if (powerOfTwo) // Mix, then mask off the low bits
+			return mix(key.hashCode()) & (hashTable.length - 1);
+		
 		int hashIndex = key.hashCode() % hashTable.length;
 		
 		if (hashIndex < 0)
@@ -188,6 +199,28 @@ public class HashedDictionary<K, V>
 		return hashIndex;
 	} // end getHashIndex
 	
+   // Murmur3 32-bit finalizer; spreads every bit of the hash code into the
+   // low bits that the mask keeps.
+   private static int mix(int hash)
+   {
+      hash ^= hash >>> 16;
+      hash *= 0x85ebca6b;
+      hash ^= hash >>> 13;
+      hash *= 0xc2b2ae35;
+      hash ^= hash >>> 16;
+      return hash;
+   } // end mix
+   
+   // Returns the index after the given one, wrapping to 0 at the end of
+   // the table; a compare is cheaper than % on every probe step.
+   private int getNextIndex(int index)
+   {
+      index++;
+      if (index == hashTable.length)
+         index = 0;
+      return index;
+   } // end getNextIndex
+	
    // Precondition: checkInitialization has been called.
 	private int probe(int index, K key)
 	{
@@ -202,7 +235,7 @@ public class HashedDictionary<K, V>
             if (key.equals(hashTable[index].getKey()))
                found = true; // Key found
             else             // Follow probe sequence
-               index = (index + 1) % hashTable.length;         // Linear probing
+               index = getNextIndex(index);                    // Linear probing
  //				index = (index + increment) % hashTable.length; // Quadratic probing **********
  //				increment = increment + 2;                      // Odd values for quadratic probing **********
          }
@@ -212,7 +245,7 @@ public class HashedDictionary<K, V>
             if (availableIndex == -1)
                availableIndex = index;
             
-            index = (index + 1) % hashTable.length;            // Linear probing
+            index = getNextIndex(index);                       // Linear probing
  //			index = (index + increment) % hashTable.length;    // Quadratic probing **********
  //			increment = increment + 2;                         // Odd values for quadratic probing **********
          } // end if
@@ -236,7 +269,7 @@ public class HashedDictionary<K, V>
          if ( hashTable[index].isIn() && key.equals(hashTable[index].getKey()) )
             found = true;                                   // Key found
          else                                               // Follow probe sequence
-            index = (index + 1) % hashTable.length;         // Linear probing
+            index = getNextIndex(index);                    // Linear probing
 //          index = (index + increment) % hashTable.length; // Quadratic probing **********
 //          increment = increment + 2;                      // Odd values for quadratic probing **********
       } // end while
@@ -249,14 +282,14 @@ public class HashedDictionary<K, V>
       return result;
    } // end locate
    
-   // Increases the size of the hash table to a prime >= twice its old size.
+   // Increases the size of the hash table to a prime (or power of two) >= twice its old size.
    // In doing so, this method must rehash the table entries.
    // Precondition: checkInitialization has been called.
 	private void enlargeHashTable()
 	{
       TableEntry<K, V>[] oldTable = hashTable;
       int oldSize = hashTable.length;
-      int newSize = getNextPrime(oldSize + oldSize);
+      int newSize = getNextTableSize(oldSize + oldSize);
       checkSize(newSize);
       
       // The cast is safe because the new array contains null entries
@@ -282,6 +315,20 @@ public class HashedDictionary<K, V>
       return numberOfEntries > MAX_LOAD_FACTOR * hashTable.length;
    } // end isHashTableTooFull
 
+   // Returns the table size to use for at least the given number of
+   // locations: a power of two in power of two mode, otherwise a prime.
+   private int getNextTableSize(int integer)
+   {
+      if (!powerOfTwo)
+         return getNextPrime(integer);
+      
+      int size = 1;
+      while (size < integer)
+         size = size << 1;
+      
+      return size;
+   } // end getNextTableSize
+
    // Returns a prime integer that is >= the given integer.
 	private int getNextPrime(int integer)
 	{
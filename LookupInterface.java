@@ -27,6 +27,51 @@ public interface LookupInterface {
 	 */
 	public String lookupPopularity(int n);
 
+	/**
+	 * Get the k most popular items with their counts, most popular first.
+	 * Ties are ordered alphabetically, as in lookupPopularity.
+	 * @param k                Number of items requested
+	 * @return DataWrapper[]   The items at ranks 0 to k-1; shorter if there are fewer than k entries.
+	 */
+	public DataWrapper[] topK(int k);
+
+	/**
+	 * Get the items at a range of ranks with their counts, in rank order.
+	 * Equivalent to calling lookupPopularity for each rank, but done in one pass.
+	 * @param from             First rank requested (inclusive)
+	 * @param to               Last rank requested (exclusive)
+	 * @return DataWrapper[]   The items at ranks from to to-1; shorter if to is past numEntries().
+	 */
+	public DataWrapper[] lookupPopularityRange(int from, int to);
+
+	/**
+	 * Find the popularity rank of a string; the inverse of lookupPopularity
+	 * @param s        String to look up
+	 * @return int     n such that lookupPopularity(n) is s, or -1 if s was never added
+	 */
+	public int lookupRank(String s);
+
+	/**
+	 * Get the most popular strings that start with a prefix, with their counts.
+	 * Ordered like lookupPopularity; an empty prefix matches every string.
+	 * @param prefix           Prefix to complete
+	 * @param k                Number of strings requested
+	 * @return DataWrapper[]   Up to k strings starting with prefix, most popular first.
+	 */
+	public DataWrapper[] lookupPrefix(String prefix, int k);
+
+	/**
+	 * Add every count of another lookup to this one, as if its strings had been added here.
+	 * By default each of the other's entries is added with one addString call;
+	 * implementations that can fold counts in bulk do so.
+	 * @param other    Lookup whose counts are added; it is not changed
+	 */
+	public default void mergeFrom(LookupInterface other) {
+		for (DataWrapper entry : other.topK(Integer.MAX_VALUE)) {  // numEntries may only be an estimate
+			addString(entry.getCount(), entry.getData());
+		}
+	}
+
 	/**
 	 * Return the total number of UNIQUE strings in the list. This will NOT be equal to the number of
 	 * times increaseCount has been called, because sometimes you will add the same string to the
@@ -1,4 +1,13 @@
 import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Test;
 
 /**
@@ -183,4 +192,778 @@ public class LookupJUnitTester {
 		assertEquals(2, test.numEntries());
 	}
 
+	@Test
+	public void test18() {
+		CountTable test = new CountTable(4);
+		assertEquals(3, test.increment("one", 3));
+		assertEquals(5, test.increment("one", 2));
+		assertEquals(5, test.get("one"));
+		assertEquals(0, test.get("two"));
+		for (int i = 0; i < 1000; i++) {
+			test.increment("word" + i, i + 1);  // enlarges many times over
+		}
+		assertEquals(1001, test.getSize());
+		assertEquals(500, test.get("word499"));
+		assertEquals(5, test.get("one"));
+	}
+
+	@Test
+	public void test19() {
+		CountTable test = new CountTable(4);
+		String[] cluster = {"AaAa", "AaBB", "BBAa", "BBBB"};  // equal hash codes, so one cluster
+		for (int i = 0; i < cluster.length; i++) {
+			assertEquals(i + 1, test.increment(cluster[i], i + 1));
+		}
+		assertEquals(4, test.getSize());
+		assertEquals(3, test.increment("AaBB", 1));  // found past the first slot of the cluster
+		assertEquals(1, test.get("AaAa"));
+		assertEquals(4, test.get("BBBB"));
+		assertEquals(true, test.contains("BBAa"));
+	}
+
+	@Test
+	public void test20() {
+		Dictionary<String, Integer> test = new Dictionary<>(5);
+		String[] cluster = {"AaAa", "AaBB", "BBAa", "BBBB"};  // equal hash codes, so one cluster
+		for (int i = 0; i < cluster.length; i++) {
+			assertEquals(null, test.add(cluster[i], i));
+		}
+		assertEquals(Integer.valueOf(1), test.remove("AaBB"));  // from the middle of the cluster
+		assertEquals(null, test.getValue("AaBB"));
+		assertEquals(Integer.valueOf(0), test.getValue("AaAa"));
+		assertEquals(Integer.valueOf(2), test.getValue("BBAa"));  // still found after the shift back
+		assertEquals(Integer.valueOf(3), test.getValue("BBBB"));
+		assertEquals(Integer.valueOf(3), test.add("BBBB", 7));  // replaced, not added again
+		assertEquals(3, test.getSize());
+		for (int i = 0; i < 100; i++) {
+			test.add("word" + i, i);  // enlarges past the first prime
+		}
+		assertEquals(103, test.getSize());
+		assertEquals(Integer.valueOf(7), test.getValue("BBBB"));
+		assertEquals(Integer.valueOf(42), test.getValue("word42"));
+	}
+
+	@Test
+	public void test21() {
+		Dictionary<String, Integer> test = new Dictionary<>(5, true);
+		for (int i = 0; i < 200; i++) {
+			test.add("word" + i, i);
+			if (i % 3 == 0) {
+				assertEquals(Integer.valueOf(i / 2), test.getValue("word" + (i / 2)));  // found mid-resize
+			}
+			if (i == 80) {
+				assertEquals(Integer.valueOf(10), test.remove("word10"));  // while the 97 slot table drains
+			}
+		}
+		assertEquals(Integer.valueOf(190), test.add("word190", -1));
+		assertEquals(199, test.getSize());
+		for (int i = 0; i < 200; i++) {
+			Integer expected = i == 10 ? null : Integer.valueOf(i == 190 ? -1 : i);
+			assertEquals(expected, test.getValue("word" + i));
+		}
+	}
+
+	@Test
+	public void test22() {
+		Dictionary<String, Integer> test = new Dictionary<>(4, false, true);
+		String[] cluster = {"AaAa", "AaBB", "BBAa", "BBBB"};  // equal hash codes, so one cluster
+		for (int i = 0; i < cluster.length; i++) {
+			test.add(cluster[i], i);
+		}
+		for (int i = 0; i < 100; i++) {
+			test.add("word" + i, i);  // doubles from 4 slots
+		}
+		assertEquals(Integer.valueOf(1), test.remove("AaBB"));
+		assertEquals(Integer.valueOf(2), test.getValue("BBAa"));
+		assertEquals(Integer.valueOf(99), test.getValue("word99"));
+		assertEquals(103, test.getSize());
+		Dictionary<String, Integer> incremental = new Dictionary<>(4, true, true);
+		for (int i = 0; i < 100; i++) {
+			incremental.add("word" + i, i);
+		}
+		assertEquals(Integer.valueOf(0), incremental.getValue("word0"));
+		assertEquals(100, incremental.getSize());
+	}
+
+	@Test
+	public void test23() {
+		GroupedDictionary<String, Integer> test = new GroupedDictionary<>(4);  // a single group of 8 slots
+		for (int i = 0; i < 7; i++) {
+			assertEquals(null, test.add("word" + i, i));
+		}
+		assertEquals(Integer.valueOf(3), test.add("word3", 30));  // replaced, not added again
+		assertEquals(Integer.valueOf(30), test.getValue("word3"));
+		assertEquals(null, test.getValue("word7"));
+		assertEquals(Integer.valueOf(30), test.remove("word3"));
+		assertEquals(null, test.remove("word3"));
+		assertEquals(6, test.getSize());
+		for (int i = 7; i < 100; i++) {
+			test.add("word" + i, i);  // rehashes into more groups
+		}
+		assertEquals(99, test.getSize());
+		assertEquals(null, test.getValue("word3"));
+		assertEquals(Integer.valueOf(0), test.getValue("word0"));
+		assertEquals(Integer.valueOf(99), test.getValue("word99"));
+	}
+
+	@Test
+	public void test24() {
+		GroupedDictionary<Integer, Integer> test = new GroupedDictionary<>(14);  // two groups of 8 slots
+		for (int i = 0; i < 14; i++) {
+			test.add(i, i);  // a group fills up, so removals from it leave DELETED markers
+		}
+		for (int i = 0; i < 14; i += 2) {
+			assertEquals(Integer.valueOf(i), test.remove(i));
+		}
+		for (int i = 1; i < 14; i += 2) {
+			assertEquals(Integer.valueOf(i), test.getValue(i));  // probes pass over the DELETED slots
+		}
+		assertEquals(null, test.getValue(0));
+		for (int i = 100; i < 120; i++) {
+			test.add(i, i);  // reuses DELETED slots, then rebuilds
+		}
+		for (int i = 1; i < 14; i += 2) {
+			assertEquals(Integer.valueOf(i), test.getValue(i));
+		}
+		assertEquals(27, test.getSize());
+	}
+
+	@Test
+	public void test25() {
+		GroupedDictionary<Integer, Integer> test = new GroupedDictionary<>(8);
+		java.util.HashMap<Integer, Integer> expected = new java.util.HashMap<>();
+		java.util.Random random = new java.util.Random(42);
+		for (int i = 0; i < 200000; i++) {
+			int key = random.nextInt(2000);  // small key space, so adds, replaces and removes all mix
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), test.remove(key));
+			} else {
+				assertEquals(expected.put(key, i), test.add(key, i));
+			}
+			if (i % 1000 == 0) {
+				int probe = random.nextInt(4000);  // misses as well as hits
+				assertEquals(expected.get(probe), test.getValue(probe));
+			}
+		}
+		assertEquals(expected.size(), test.getSize());
+		for (int key = 0; key < 2000; key++) {
+			assertEquals(expected.get(key), test.getValue(key));
+		}
+	}
+
+	@Test
+	public void test26() {
+		LookupInterface test = new StudentLookup(new FrequencyBucketList());
+		test.addString(1, "BBB");
+		test.addString(1, "AAA");
+		test.addString(1, "CCC");
+		assertEquals("AAA", test.lookupPopularity(0));  // one bucket, alphabetical
+		assertEquals("CCC", test.lookupPopularity(2));
+		test.addString(1, "CCC");  // +1 moves to the neighbouring bucket
+		test.addString(1, "BBB");
+		assertEquals("BBB", test.lookupPopularity(0));
+		assertEquals("CCC", test.lookupPopularity(1));
+		assertEquals("AAA", test.lookupPopularity(2));
+		test.addString(1, "AAA");
+		test.addString(1, "AAA");  // passes both of the others
+		assertEquals("AAA", test.lookupPopularity(0));
+		assertEquals("BBB", test.lookupPopularity(1));
+	}
+
+	@Test
+	public void test27() {
+		LookupInterface test = new StudentLookup(new FrequencyBucketList());
+		test.addString(5, "AAA");
+		test.addString(2, "BBB");
+		test.addString(9, "CCC");
+		test.addString(4, "BBB");  // skips over the 5 bucket
+		test.addString(3, "DDD");  // a bucket between two others
+		assertEquals("CCC", test.lookupPopularity(0));
+		assertEquals("BBB", test.lookupPopularity(1));
+		assertEquals("AAA", test.lookupPopularity(2));
+		assertEquals("DDD", test.lookupPopularity(3));
+		assertEquals(6, test.lookupCount("BBB"));
+		test.addString(4, "AAA");  // joins CCC's bucket and wins the tie
+		assertEquals("AAA", test.lookupPopularity(0));
+		assertEquals("CCC", test.lookupPopularity(1));
+		assertSameRanking(randomLookup(new StudentLookup()), randomLookup(new StudentLookup(new FrequencyBucketList())));
+	}
+
+	@Test
+	public void test28() {
+		LookupInterface expected = new StudentLookup();
+		LookupInterface test = new StudentLookup(new StorageArrayUtil<>());
+		for (int i = 0; i < 2000; i++) {
+			expected.addString(1 + i % 50, "word" + i);
+			test.addString(1 + i % 50, "word" + i);
+		}
+		assertEquals(expected.lookupPopularity(0), test.lookupPopularity(0));  // sorts everything once
+		java.util.Random random = new java.util.Random(3);
+		int added = 0;
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 300; i++, added++) {
+				// too many to merge cheaply, too few to force a merge
+				expected.addString(1 + added % 40, "new" + added);
+				test.addString(1 + added % 40, "new" + added);
+			}
+			for (int i = 0; i < 8; i++, added++) {
+				// an add between queries keeps the planner off the sweep path
+				expected.addString(1 + added % 40, "new" + added);
+				test.addString(1 + added % 40, "new" + added);
+				int n = i % 2 == 0 ? random.nextInt(64) : 64 + random.nextInt(expected.numEntries() - 64);
+				assertEquals(expected.lookupPopularity(n), test.lookupPopularity(n));
+			}
+		}
+		assertSameRanking(expected, test);
+	}
+
+	@Test
+	public void test29() {
+		LookupInterface test = new StudentLookup(new MaxHeap<>());
+		test.addString(1, "BBB");
+		test.addString(1, "AAA");
+		test.addString(3, "CCC");
+		assertEquals("CCC", test.lookupPopularity(0));
+		assertEquals("AAA", test.lookupPopularity(1));  // tie broken alphabetically
+		test.addString(3, "BBB");  // increase key moves it past CCC
+		assertEquals("BBB", test.lookupPopularity(0));
+		assertEquals("AAA", test.lookupPopularity(2));
+		assertSameRanking(randomLookup(new StudentLookup()), randomLookup(new StudentLookup(new MaxHeap<>())));
+	}
+
+	@Test
+	public void test30() {
+		MaxHeap<DataWrapper> test = new MaxHeap<>(4);  // grows past its first capacity
+		for (int i = 0; i < 20; i++) {
+			test.add(new DataWrapper("word" + i, i));
+		}
+		assertEquals("word19", test.getNMax(0).getData());
+		assertEquals("word15", test.getNMax(4).getData());
+		test.updateEntry(new DataWrapper("word19", 0));  // decrease key moves it toward the leaves
+		assertEquals("word18", test.getMax().getData());
+		assertEquals("word19", test.getNMax(19).getData());  // below word0 alphabetically
+		assertEquals("word18", test.removeMax().getData());
+		assertEquals(19, test.getSize());
+		assertEquals("word17", test.getNMax(0).getData());
+		assertEquals("word19", test.getNMax(18).getData());
+	}
+
+	@Test
+	public void test31() {
+		LookupInterface test = new StudentLookup(new StorageArrayUtil<>(4));  // grows past its first capacity
+		test.addString(2, "BBB");
+		test.addString(5, "AAA");
+		test.addString(2, "CCC");
+		assertEquals("AAA", test.lookupPopularity(0));  // merges the added entries
+		test.addString(2, "CCC");  // moves within the sorted part
+		test.addString(3, "DDD");  // added after the sort
+		assertEquals("CCC", test.lookupPopularity(1));
+		assertEquals("DDD", test.lookupPopularity(2));
+		assertEquals("BBB", test.lookupPopularity(3));
+		assertEquals(4, test.numEntries());
+		assertSameRanking(randomLookup(new StudentLookup()), randomLookup(new StudentLookup(new StorageArrayUtil<>())));
+	}
+
+	@Test
+	public void test32() {
+		LookupInterface test = new StudentLookup();
+		test.addString(3, "BBB");
+		test.addString(1, "CCC");
+		test.addString(3, "AAA");
+		DataWrapper[] top = test.topK(5);  // only 3 entries
+		assertEquals(3, top.length);
+		assertEquals("AAA", top[0].getData());
+		assertEquals(3, top[0].getCount());
+		assertEquals("BBB", top[1].getData());
+		assertEquals("CCC", top[2].getData());
+		assertEquals(1, top[2].getCount());
+	}
+
+	@Test
+	public void test33() {
+		LookupInterface test = new StudentLookup();
+		test.addString(4, "AAA");
+		test.addString(3, "BBB");
+		test.addString(2, "CCC");
+		test.addString(1, "DDD");
+		DataWrapper[] range = test.lookupPopularityRange(1, 3);
+		assertEquals(2, range.length);
+		assertEquals("BBB", range[0].getData());
+		assertEquals("CCC", range[1].getData());
+		assertEquals(2, range[1].getCount());
+		assertEquals(0, test.lookupPopularityRange(4, 6).length);
+	}
+
+	@Test
+	public void test34() {
+		LookupInterface test = new StudentLookup();
+		test.addString(2, "BBB");
+		test.addString(2, "AAA");
+		test.addString(5, "CCC");
+		assertEquals(0, test.lookupRank("CCC"));
+		assertEquals(1, test.lookupRank("AAA"));
+		assertEquals(2, test.lookupRank("BBB"));
+		assertEquals(-1, test.lookupRank("DDD"));
+	}
+
+	@Test
+	public void test35() {
+		MaxHeap<DataWrapper> heap = new MaxHeap<>();
+		for (int i = 0; i < 20; i++) {
+			heap.add(new DataWrapper("word" + i, i));
+		}
+		heap.updateEntry(new DataWrapper("word19", 0));
+		assertEquals(19, heap.getRank(new DataWrapper("word19", 0)));  // below word0 alphabetically
+		assertEquals(1, heap.getRank(new DataWrapper("word17", 17)));
+		heap.removeMax();
+		assertEquals(-1, heap.getRank(new DataWrapper("word18", 18)));
+		LookupInterface storage = new StudentLookup(new StorageArrayUtil<>());
+		storage.addString(2, "BBB");
+		storage.addString(5, "AAA");
+		storage.addString(2, "CCC");
+		assertEquals(1, storage.lookupRank("BBB"));  // found while nothing is sorted yet
+		assertEquals("AAA", storage.lookupPopularity(0));
+		storage.addString(2, "CCC");
+		storage.addString(3, "DDD");  // added after the sort
+		assertEquals(1, storage.lookupRank("CCC"));
+		assertEquals(2, storage.lookupRank("DDD"));
+		LookupInterface buckets = new StudentLookup(new FrequencyBucketList());
+		buckets.addString(1, "BBB");
+		buckets.addString(1, "AAA");
+		buckets.addString(2, "CCC");
+		assertEquals(1, buckets.lookupRank("AAA"));
+		buckets.addString(2, "AAA");  // passes both of the others
+		assertEquals(0, buckets.lookupRank("AAA"));
+		assertEquals(2, buckets.lookupRank("BBB"));
+		assertEquals(-1, buckets.lookupRank("DDD"));
+	}
+
+	@Test
+	public void test36() {
+		LookupInterface test = new StudentLookup();
+		test.addString(1, "car");
+		test.addString(3, "cart");
+		test.addString(2, "cat");
+		test.addString(5, "dog");
+		DataWrapper[] top = test.lookupPrefix("ca", 2);
+		assertEquals(2, top.length);
+		assertEquals("cart", top[0].getData());
+		assertEquals("cat", top[1].getData());
+		test.addString(4, "car");  // index is kept up to date after the first query
+		assertEquals("car", test.lookupPrefix("car", 1)[0].getData());
+		assertEquals(5, test.lookupPrefix("car", 1)[0].getCount());
+		assertEquals(0, test.lookupPrefix("x", 3).length);
+	}
+
+	@Test
+	public void test37() {
+		long[] now = {0};
+		LookupInterface test = new WindowedLookup(1000, 10, () -> now[0]);
+		test.addString(5, "AAA");
+		now[0] = 500;
+		test.addString(2, "BBB");
+		test.addString(1, "AAA");
+		assertEquals(6, test.lookupCount("AAA"));
+		assertEquals("AAA", test.lookupPopularity(0));
+		now[0] = 1000;  // the first bucket leaves the window
+		assertEquals(1, test.lookupCount("AAA"));
+		assertEquals("BBB", test.lookupPopularity(0));
+		now[0] = 1500;  // and then the rest
+		assertEquals(0, test.lookupCount("BBB"));
+		assertEquals(0, test.numEntries());
+	}
+
+	@Test
+	public void test38() {
+		CountTable test = new CountTable(4);
+		String[] cluster = {"AaAa", "AaBB", "BBAa", "BBBB"};  // equal hash codes, so one cluster
+		for (int i = 0; i < cluster.length; i++) {
+			test.increment(cluster[i], i + 1);
+		}
+		assertEquals(2, test.remove("AaBB"));  // from the middle of the cluster
+		assertEquals(0, test.remove("AaBB"));
+		assertEquals(0, test.get("AaBB"));
+		assertEquals(1, test.get("AaAa"));
+		assertEquals(3, test.get("BBAa"));  // still found after the shift back
+		assertEquals(4, test.get("BBBB"));
+		assertEquals(4, test.remove("BBBB"));  // from the end
+		assertEquals(2, test.getSize());
+		assertEquals(3, test.increment("AaBB", 3));  // re-inserted into the gap
+		assertEquals(3, test.getSize());
+	}
+
+	@Test
+	public void test39() {
+		long[] now = {0};
+		DecayedLookup test = new DecayedLookup(1000, () -> now[0]);
+		test.addString(4, "AAA");
+		now[0] = 2000;  // AAA has halved twice -- worth 1
+		test.addString(2, "BBB");
+		assertEquals("BBB", test.lookupPopularity(0));
+		assertEquals(4, test.lookupCount("AAA"));
+		assertEquals(1.0, test.lookupScore("AAA"), 1e-9);
+		now[0] = 200000;  // exponent about 139, past 64 -- moves the base once
+		test.addString(1, "CCC");
+		assertEquals("CCC", test.lookupPopularity(0));
+		assertEquals(1, test.lookupRank("BBB"));
+		now[0] = 2000000;  // moves the base again; scaled from the old base this would overflow
+		test.addString(1, "BBB");
+		assertEquals("BBB", test.lookupPopularity(0));
+		assertEquals(1.0, test.lookupScore("BBB"), 1e-9);
+		assertEquals(1, test.lookupRank("AAA"));  // the older scores underflow to zero and tie alphabetically
+		assertEquals(2, test.lookupRank("CCC"));
+		assertEquals(3, test.lookupCount("BBB"));
+	}
+
+	@Test
+	public void test40() {
+		LookupInterface test = new ApproximateLookup(0.001, 0.01, 2);
+		test.addString(5, "AAA");
+		test.addString(3, "BBB");
+		test.addString(1, "CCC");  // takes over BBB's counter
+		test.addString(4, "AAA");
+		assertEquals(9, test.lookupCount("AAA"));
+		assertEquals(3, test.lookupCount("BBB"));  // the sketch still has it
+		assertEquals("AAA", test.lookupPopularity(0));
+		assertEquals("CCC", test.lookupPopularity(1));
+		assertEquals(-1, test.lookupRank("BBB"));
+	}
+
+	@Test
+	public void test41() {
+		LookupInterface test = new ApproximateLookup(0.001, 0.01, 2);
+		for (int i = 0; i < 50; i++) {
+			test.addString(1, "word" + i);
+			test.addString(1, "word" + i);  // repeats are not counted again
+		}
+		assertEquals(50, test.numEntries());
+	}
+
+	@Test
+	public void test42() {
+		ShardedLookup test = new ShardedLookup(3);
+		test.addString(2, "BBB");
+		test.addString(2, "AAA");
+		test.addString(1, "CCC");
+		test.addString(3, "DDD");
+		assertEquals(4, test.numEntries());
+		assertEquals("DDD", test.lookupPopularity(0));
+		assertEquals("AAA", test.lookupPopularity(1));  // tie broken alphabetically across shards
+		assertEquals("BBB", test.lookupPopularity(2));
+		assertEquals(2, test.lookupRank("BBB"));
+		assertEquals(2, test.lookupCount("AAA"));
+		test.close();
+	}
+
+	@Test
+	public void test43() {
+		LookupInterface test = new StudentLookup();
+		LookupInterface other = new StudentLookup();
+		test.addString(2, "AAA");
+		test.addString(1, "BBB");
+		other.addString(2, "BBB");
+		other.addString(4, "CCC");
+		test.mergeFrom(other);
+		assertEquals(3, test.numEntries());
+		assertEquals(3, test.lookupCount("BBB"));
+		assertEquals("CCC", test.lookupPopularity(0));
+		assertEquals("BBB", test.lookupPopularity(1));
+		assertEquals("AAA", test.lookupPopularity(2));
+		test.addString(5, "AAA");  // still updates normally afterwards
+		assertEquals("AAA", test.lookupPopularity(0));
+	}
+
+	@Test
+	public void test44() {
+		CountTable test = new CountTable(4);
+		test.increment("one", 5);
+		for (int i = 0; i < 100; i++) {
+			test.increment("word" + i, i + 1);
+		}
+		test.ensureCapacity(100000);  // grows once, keeping every count
+		assertEquals(5, test.get("one"));
+		assertEquals(100, test.get("word99"));
+		assertEquals(101, test.getSize());
+		test.ensureCapacity(10);  // already large enough
+		assertEquals(1, test.get("word0"));
+	}
+
+	@Test
+	public void test45() {
+		LookupInterface[] lookups = {new StudentLookup(new MaxHeap<>()), new StudentLookup(new StorageArrayUtil<>(4))};
+		for (LookupInterface test : lookups) {
+			LookupInterface other = new StudentLookup();
+			test.addString(1, "BBB");
+			test.addString(3, "CCC");
+			other.addString(10, "DDD");
+			other.addString(1, "BBB");
+			test.mergeFrom(other);  // rebuilds the store from a sorted array
+			assertEquals("DDD", test.lookupPopularity(0));
+			assertEquals(2, test.lookupRank("BBB"));
+			assertEquals(2, test.lookupCount("BBB"));
+			test.addString(5, "BBB");  // still updates normally afterwards
+			assertEquals("BBB", test.lookupPopularity(1));
+		}
+	}
+
+	@Test
+	public void test46() throws IOException {
+		File file = File.createTempFile("tokenizer", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "don't stop\r\nthe\tthe  the the\n".getBytes(StandardCharsets.ISO_8859_1));
+		StudentLookup test = new StudentLookup();
+		Tokenizer.countFile(file.getPath(), test);
+		assertEquals(4, test.numEntries());
+		assertEquals(1, test.lookupCount("dont"));  // punctuation is dropped, not split on
+		assertEquals(1, test.lookupCount("thethe"));  // a tab is not a space
+		assertEquals("the", test.lookupPopularity(0));
+		assertEquals(Arrays.asList("dont", "stop", "thethe", "the", "the"), Controller.readFile(file.getPath()));
+	}
+
+	@Test
+	public void test47() {
+		CountTable test = new CountTable(4);
+		byte[] bytes = "xAaBBx".getBytes(StandardCharsets.ISO_8859_1);
+		test.increment("BBBB", 1);
+		assertEquals(1, test.increment(bytes, 1, 4, 1));  // AaBB -- same hash as BBBB, new key
+		assertEquals("AaBB", test.getLastKey());
+		assertEquals(2, test.increment("AaBB", 1));  // the String finds the slot the bytes made
+		assertEquals(3, test.increment(bytes, 1, 4, 1));
+		assertEquals(2, test.increment("BBBB".getBytes(StandardCharsets.ISO_8859_1), 0, 4, 1));
+		assertEquals("BBBB", test.getLastKey());
+		assertEquals(2, test.getSize());
+		assertEquals(3, test.get("AaBB"));
+	}
+
+	@Test
+	public void test48() throws IOException {
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 65530) {
+			text.append("aa ");
+		}
+		text.append("abcdefghij bb");  // crosses the first 64 KB block
+		LookupInterface test = new DecayedLookup(1000);  // not a StudentLookup, so words arrive as Strings
+		Tokenizer.countStream(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.ISO_8859_1)), test);
+		assertEquals(3, test.numEntries());
+		assertEquals(1, test.lookupCount("abcdefghij"));
+		assertEquals(1, test.lookupCount("bb"));
+		assertEquals("aa", test.lookupPopularity(0));
+	}
+
+	@Test
+	public void test49() throws IOException {
+		File file = File.createTempFile("parallel", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "the cat\nthe dog the\r\nend".getBytes(StandardCharsets.ISO_8859_1));
+		StudentLookup test = new StudentLookup();
+		test.addString(2, "cat");
+		ForkJoinPool pool = new ForkJoinPool(2);
+		ParallelIngest.countFile(file.getPath(), test, pool);
+		pool.shutdown();
+		assertEquals(4, test.numEntries());
+		assertEquals(3, test.lookupCount("the"));
+		assertEquals(3, test.lookupCount("cat"));  // added to the counts already there
+		assertEquals(1, test.lookupCount("end"));
+		assertEquals("cat", test.lookupPopularity(0));
+		assertEquals("the", test.lookupPopularity(1));
+	}
+
+	@Test
+	public void test50() throws IOException {
+		File file = File.createTempFile("pipelined", ".txt");
+		file.deleteOnExit();
+		byte[] text = "one two two\nthree three three".getBytes(StandardCharsets.ISO_8859_1);
+		Files.write(file.toPath(), text);
+		StudentLookup test = new StudentLookup();
+		PipelinedIngest pipeline = new PipelinedIngest(2);
+		pipeline.countFile(file.getPath(), test);
+		assertEquals(3, test.numEntries());
+		assertEquals("three", test.lookupPopularity(0));
+		assertEquals(2, test.lookupCount("two"));
+		PipelinedIngest.Stage[] stages = pipeline.getStages();
+		assertEquals(4, stages.length);  // read, two tokenizers, count
+		assertEquals(text.length, stages[0].getUnits());
+		assertEquals(6, stages[1].getUnits() + stages[2].getUnits());
+		assertEquals(6, stages[3].getUnits());
+	}
+
+	@Test
+	public void test51() {
+		LookupInterface test = new StudentLookup();
+		LookupInterface other = new ApproximateLookup(0.001, 0.01, 2);
+		test.addString(1, "word0");
+		for (int i = 0; i < 50; i++) {
+			other.addString(1, "word" + i);  // 50 distinct strings, but only 2 heavy hitters
+		}
+		other.addString(5, "word7");
+		DataWrapper[] ranked = other.topK(other.numEntries());
+		assertEquals(2, ranked.length);
+		test.mergeFrom(other);  // adds only what other can rank
+		assertEquals(3, test.numEntries());
+		assertEquals("word7", test.lookupPopularity(0));
+		assertEquals(ranked[0].getCount(), test.lookupCount("word7"));
+		assertEquals(ranked[1].getCount(), test.lookupCount(ranked[1].getData()));
+		assertEquals(1, test.lookupCount("word0"));
+	}
+
+	@Test
+	public void test52() {
+		LookupInterface test = new ApproximateLookup(0.001, 0.01, 2);
+		LookupInterface other = new ApproximateLookup(0.001, 0.01, 2);
+		test.addString(10, "x");
+		other.addString(1, "x");
+		other.addString(5, "w");
+		other.addString(5, "v");  // takes over x's counter, so other no longer monitors x
+		test.mergeFrom(other);
+		assertEquals(11, test.lookupCount("x"));  // never below the true count
+		assertEquals(5, test.lookupCount("w"));
+		assertEquals("x", test.lookupPopularity(0));
+		test.mergeFrom(test);  // into itself
+		assertEquals(22, test.lookupCount("x"));
+	}
+
+	@Test
+	public void test53() {
+		ShardedLookup test = new ShardedLookup(4, 16);  // four strings per shard to start with
+		for (int i = 0; i < 500; i++) {
+			test.addString(1 + i % 7, "word" + i);  // every shard grows past its first size
+		}
+		assertEquals(500, test.numEntries());
+		assertEquals("word104", test.lookupPopularity(0));  // count 7, first alphabetically
+		assertEquals(7, test.lookupCount("word6"));
+		test.close();
+		LookupInterface small = new StudentLookup(2);
+		small.addString(1, "AAA");
+		small.addString(2, "BBB");
+		small.addString(3, "CCC");
+		assertEquals("CCC", small.lookupPopularity(0));
+		assertEquals(3, small.numEntries());
+	}
+
+	@Test
+	public void test54() {
+		LookupInterface approximate = new ApproximateLookup(0.001, 0.01, 2, 0);  // no estimate
+		for (int i = 0; i < 50; i++) {
+			approximate.addString(1, "word" + i);
+		}
+		assertEquals(2, approximate.numEntries());  // only the heavy hitters are known
+		ShardedLookup test = new ShardedLookup(3, 1000, 14);
+		for (int i = 0; i < 1000; i++) {
+			test.addString(1, "word" + i);
+			test.addString(1, "word" + i);  // repeats are not counted again
+		}
+		assertEquals(1000, test.estimateEntries(), 20);  // within 2%
+		assertEquals(1000, test.numEntries());  // still exact
+		assertEquals("word999", test.lookupPopularity(test.numEntries() - 1));
+		assertEquals(1000, test.topK(2000).length);
+		LookupInterface exact = new StudentLookup();
+		exact.mergeFrom(test);  // takes every entry
+		assertEquals(1000, exact.numEntries());
+		test.close();
+	}
+
+	@Test
+	public void test55() {
+		CountMinSketch test = new CountMinSketch(0.01, 0.01);
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		test.add("Aa", 5);
+		assertEquals(5, test.estimate("Aa"));
+		assertEquals(0, test.estimate("BB"));  // equal String.hashCode, different columns
+		test.add("BB", 2);
+		assertEquals(5, test.estimate("Aa"));
+		assertEquals(2, test.estimate("BB"));
+	}
+
+	@Test
+	public void test56() throws IOException {
+		File file = File.createTempFile("parallel", ".txt");
+		file.deleteOnExit();
+		java.util.Random random = new java.util.Random(11);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 4000; i++) {
+			text.append("word").append(random.nextInt(200)).append(random.nextInt(8) == 0 ? '\n' : ' ');
+		}
+		for (int i = 0; i < 5000; i++) {
+			text.append('x');  // longer than one align block, so some cuts search across blocks
+		}
+		text.append(" word7");
+		Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.ISO_8859_1));
+		StudentLookup expected = new StudentLookup();
+		Tokenizer.countFile(file.getPath(), expected);
+		StudentLookup test = new StudentLookup();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ParallelIngest.countFile(file.getPath(), test, pool, 64);  // 16 ranges, most cut inside a word
+		pool.shutdown();
+		assertSameRanking(expected, test);
+		for (int n = 0; n < expected.numEntries(); n++) {
+			String s = expected.lookupPopularity(n);
+			assertEquals(expected.lookupCount(s), test.lookupCount(s));
+		}
+	}
+
+	@Test
+	public void test57() throws IOException {
+		File file = File.createTempFile("pipelined", ".txt");
+		file.deleteOnExit();
+		java.util.Random random = new java.util.Random(13);
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 1 << 21) {  // more than the 1 MB the read ring holds
+			text.append("word").append(random.nextInt(500)).append(random.nextInt(8) == 0 ? '\n' : ' ');
+		}
+		for (int length : new int[] {150000, 200000}) {
+			for (int i = 0; i < length; i++) {
+				text.append((char) ('a' + length / 50000));  // longer than a block, so blocks and the carry grow
+			}
+			text.append(' ');
+		}
+		text.append("word3 word4");
+		Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.ISO_8859_1));
+		StudentLookup expected = new StudentLookup();
+		Tokenizer.countFile(file.getPath(), expected);
+		StudentLookup test = new StudentLookup();
+		PipelinedIngest pipeline = new PipelinedIngest(2);
+		pipeline.countFile(file.getPath(), test);
+		assertSameRanking(expected, test);
+		for (int n = 0; n < expected.numEntries(); n++) {
+			String s = expected.lookupPopularity(n);
+			assertEquals(expected.lookupCount(s), test.lookupCount(s));
+		}
+		long stalls = 0;
+		for (PipelinedIngest.Stage stage : pipeline.getStages()) {
+			stalls += stage.getStalls();
+		}
+		assertEquals(true, stalls > 0);  // some stage waited on a full or empty ring
+	}
+
+	/**
+	 * Add the same seeded stream of strings and amounts to a lookup
+	 * @param test lookup to fill
+	 * @return test
+	 */
+	private static LookupInterface randomLookup(LookupInterface test) {
+		java.util.Random random = new java.util.Random(7);
+		for (int i = 0; i < 5000; i++) {
+			test.addString(random.nextInt(3) == 0 ? 1 + random.nextInt(20) : 1, "word" + random.nextInt(300));
+		}
+		return test;
+	}
+
+	/**
+	 * Check that two lookups rank every string the same way
+	 * @param expected lookup to compare against
+	 * @param test lookup under test
+	 */
+	private static void assertSameRanking(LookupInterface expected, LookupInterface test) {
+		assertEquals(expected.numEntries(), test.numEntries());
+		for (int n = 0; n < expected.numEntries(); n++) {
+			String s = expected.lookupPopularity(n);
+			assertEquals(s, test.lookupPopularity(n));
+			assertEquals(n, test.lookupRank(s));
+		}
+		DataWrapper[] range = test.lookupPopularityRange(10, 40);
+		for (int i = 0; i < range.length; i++) {
+			assertEquals(expected.lookupPopularity(10 + i), range[i].getData());
+		}
+	}
+
 }
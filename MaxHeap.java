@@ -1,16 +1,27 @@
 import java.util.Arrays;
+import java.util.PriorityQueue;
 
 /**
+ * An indexed max heap
+ * A dictionary maps each entry to its position in the heap, so an entry can be
+ * found and have its key increased or decreased in O(log n); the k'th max is found
+ * with an auxiliary candidate heap in O(k log k) without touching the main heap
  * @author Zachary Zampa
  *
  */
-public class MaxHeap<T extends Comparable<? super T>> {
+public class MaxHeap<T extends Comparable<? super T>> implements RankingInterface<T> {
 	private T[] heap;
+	private Position[] positions;  // positions[i] belongs to heap[i]
+	private Dictionary<T, Position> index;  // entry to its position in the heap
+	private T[] extracted;  // entries in max order found by earlier getNMax calls
+	private int numberExtracted;  // how many of extracted are valid
+	private PriorityQueue<Integer> candidates;  // heap indexes that could be the next max to extract
 	private static final int DEFAULT_CAPACITY = 10000;  // default capacity
 	private static final int MAX_CAPACITY = 10000000;  // max capacity = 10^7
 	private int lastIndex;  // the index of the last element
 	private boolean integrityFlag = false;   // checks the integrity of the heap
 	private static final double MAX_LOAD = 0.75;  // How much of the table can be filled
+	private static final int DEFAULT_EXTRACTED = 16;  // starting size of the extracted array
 	
 	/**
 	 * Default Constructor for Empty Maxheap
@@ -30,7 +41,10 @@ public class MaxHeap<T extends Comparable<? super T>> {
 		@SuppressWarnings("unchecked")
 		T[] tmp = (T[]) new Comparable[capacity + 1];
 		heap = tmp;
+		positions = new Position[capacity + 1];
+		index = new Dictionary<>(capacity, false, true);
 		lastIndex = 0;  
+		initExtraction();
 		integrityFlag = true;  // everything is initialized; set flag to true
 	}
 	
@@ -47,10 +61,24 @@ public class MaxHeap<T extends Comparable<? super T>> {
 	}
 
 	
+	/**
+	 * Copy Constructor
+	 * @param other heap to copy
+	 */
 	public MaxHeap(MaxHeap<T> other) {
 		T[] tmp = (T[]) Arrays.copyOf(other.heap, other.heap.length);
 		heap = tmp;
 		lastIndex = other.lastIndex;
+
+		// positions are mutable, so each heap needs its own
+		positions = new Position[heap.length];
+		index = new Dictionary<>(Math.max(lastIndex, 1), false, true);
+		for (int i = 1; i <= lastIndex; i++) {
+			positions[i] = new Position(i);
+			index.add(heap[i], positions[i]);
+		}
+
+		initExtraction();
 		integrityFlag = other.integrityFlag;
 	}
 
@@ -69,6 +97,7 @@ public class MaxHeap<T extends Comparable<? super T>> {
 		int newSize = oldSize * 2;
 		sizeCheck(newSize);  // check if new size is under capacity
 		heap = Arrays.copyOf(tmpHeap, newSize);
+		positions = Arrays.copyOf(positions, newSize);
 	}
 
 	/**
@@ -99,66 +128,75 @@ public class MaxHeap<T extends Comparable<? super T>> {
 	 * Add a new entry to the max heap
 	 * @param newEntry entry to add
 	 */
+	@Override
 	public void add(T newEntry) {
 		checkInit();
-		int nextIndex = lastIndex + 1;
-		int pIndex = parent(nextIndex);
+		lastIndex++;
+		heap[lastIndex] = newEntry;
+		positions[lastIndex] = new Position(lastIndex);
+		index.add(newEntry, positions[lastIndex]);
+		siftUp(lastIndex);
+		resetExtraction();
+		checkLoad();
+	}
+
+	/**
+	 * Move an entry up while it is greater than its parent
+	 * @param childIndex index of the entry
+	 */
+	private void siftUp(int childIndex) {
+		T entry = heap[childIndex];
+		Position position = positions[childIndex];
+		int pIndex = parent(childIndex);
 		
-		// compare going up tree while newentry is greater than the parent
-		while (pIndex > 0 && newEntry.compareTo(heap[pIndex]) > 0) {
-			heap[nextIndex] = heap[pIndex];
-			nextIndex = pIndex;
-			pIndex = parent(nextIndex);
+		// compare going up tree while entry is greater than the parent
+		while (pIndex > 0 && entry.compareTo(heap[pIndex]) > 0) {
+			place(heap[pIndex], positions[pIndex], childIndex);
+			childIndex = pIndex;
+			pIndex = parent(childIndex);
 		}
 		
-		heap[nextIndex] = newEntry;
-		lastIndex++;
-		checkLoad();
+		place(entry, position, childIndex);
+	}
+
+	/**
+	 * Put an entry and its position at an index of the heap
+	 * @param entry entry to put
+	 * @param position position belonging to entry
+	 * @param heapIndex where to put it
+	 */
+	private void place(T entry, Position position, int heapIndex) {
+		heap[heapIndex] = entry;
+		positions[heapIndex] = position;
+		position.index = heapIndex;
 	}
 	
 	/**
 	 * Update an existing entry
 	 * Assumes that it does exist in max heap; works in conjunction with a dictionary
+	 * The entry is found through the index, then moved up or down as its key changed
 	 * @param newEntry
 	 */
 	public void updateEntry(T newEntry) {
 		checkInit();
+		int heapIndex = index.getValue(newEntry).index;
+		T oldEntry = heap[heapIndex];
+		heap[heapIndex] = newEntry;
 		
-		
-		// perform linear search through maxheap
-		for(int i = 1; i <= lastIndex; i++) {
-			if(heap[i].equals(newEntry)) {
-				heap[i] = newEntry;
-				reheap(1);
-				break;
-			}
+		if (newEntry.compareTo(oldEntry) > 0) {
+			// increase key -- move toward the root
+			siftUp(heapIndex);
+		} else {
+			// decrease key -- move toward the leaves
+			reheap(heapIndex);
 		}
 		
-		
-//		// perform linear search where left Child is 2*i and right child is 2*i+1
-//		for (int i = 1; i <= lastIndex; i = 2*i) {
-//			if (heap[i].equals(newEntry)) {
-//				heap[i] = newEntry;
-//				reheap(1);
-//				return;
-//			} 
-//			// This is cuts the search short if it is taking too long and cannot be found
-//			if (heap[i].compareTo(newEntry) > 0) {
-//				break;
-//			}
-//		}
-//		
-//		for (int i = 1; i <= lastIndex; i = 2*i + 1) {
-//			if (heap[i].equals(newEntry)) {
-//				heap[i] = newEntry;
-//				reheap(1);
-//				return;
-//			}
-//		}
-		
-		
-		
-		
+		resetExtraction();
+	}
+
+	@Override
+	public void updateEntry(T oldEntry, T newEntry) {
+		updateEntry(newEntry);  // found through the index; the old entry is not needed
 	}
 		
 	
@@ -169,6 +207,7 @@ public class MaxHeap<T extends Comparable<? super T>> {
 	public void reheap(int rootIndex) {
 		boolean finished = false;
 		T lost = heap[rootIndex];
+		Position lostPosition = positions[rootIndex];
 		int leftCIndex = leftChild(rootIndex);  // get left child node
 		
 		while (!finished && leftCIndex <= lastIndex) {
@@ -180,7 +219,7 @@ public class MaxHeap<T extends Comparable<? super T>> {
 			
 			if (lost.compareTo(heap[largeCIndex]) < 0) {
 				// lost node is less than node in largeCIndex
-				heap[rootIndex] = heap[largeCIndex];  // set this into the root index
+				place(heap[largeCIndex], positions[largeCIndex], rootIndex);  // set this into the root index
 				rootIndex = largeCIndex;  // tick down to next index
 				leftCIndex = leftChild(rootIndex);
 			} else {
@@ -189,7 +228,7 @@ public class MaxHeap<T extends Comparable<? super T>> {
 			}
 		}
 		
-		heap[rootIndex] = lost;  // this node is then the max
+		place(lost, lostPosition, rootIndex);  // this node is then the max
 	}
 	
 	/**
@@ -200,10 +239,13 @@ public class MaxHeap<T extends Comparable<? super T>> {
 		
 		while (lastIndex > -1) {
 			heap[lastIndex] = null;
+			positions[lastIndex] = null;
 			lastIndex--;
 		}
 		
 		lastIndex = 0;  // reset index to 0
+		index.clear();
+		resetExtraction();
 	}
 	
 	/**
@@ -216,9 +258,15 @@ public class MaxHeap<T extends Comparable<? super T>> {
 		
 		if (!isEmpty()) {
 			root = heap[1];  // store the max (top) value
-			heap[1] = heap[lastIndex];  // replace max value with last leaf
+			index.remove(root);
+			place(heap[lastIndex], positions[lastIndex], 1);  // replace max value with last leaf
+			heap[lastIndex] = null;
+			positions[lastIndex] = null;
 			lastIndex--; 
-			reheap(1);  // reheap to ensure 
+			if (!isEmpty()) {
+				reheap(1);  // reheap to ensure 
+			}
+			resetExtraction();
 		}
 		
 		return root;
@@ -245,28 +293,152 @@ public class MaxHeap<T extends Comparable<? super T>> {
 	 * @param n which most max to get
 	 * @return N most max in heap
 	 */
+	@Override
 	public T getNMax(int n) {
+		checkInit();
 		
+		if (n < 0 || n >= lastIndex) {
+			return null;  // rank out of range
+		}
 		
+		// the n'th max is among the children of the maxes before it -- keep extracting
+		// where the last call left off, so sweeping the ranks in order costs O(n log n) in total
+		if (numberExtracted == 0 && candidates.isEmpty()) {
+			candidates.add(1);  // the root is the first max
+		}
 		
+		while (numberExtracted <= n) {
+			int top = candidates.poll();
+			if (numberExtracted == extracted.length) {
+				extracted = Arrays.copyOf(extracted, extracted.length * 2);
+			}
+			extracted[numberExtracted++] = heap[top];
+			
+			int leftCIndex = leftChild(top);
+			if (leftCIndex <= lastIndex) {
+				candidates.add(leftCIndex);
+			}
+			if (leftCIndex + 1 <= lastIndex) {
+				candidates.add(leftCIndex + 1);
+			}
+		}
+		
+		return extracted[n];
+	}
+	
+	@Override
+	public void getNMaxRange(int from, T[] range) {
+		if (range.length > 0) {
+			getNMax(from + range.length - 1);  // extract up to the last rank wanted
+			System.arraycopy(extracted, from, range, 0, range.length);
+		}
+	}
+	
+	/**
+	 * Get the rank of an entry by counting the larger entries
+	 * A subtree whose root is not larger than the entry holds nothing larger,
+	 * so only the larger entries and their children are visited -- O(rank)
+	 * @param item entry as it is currently stored
+	 * @return number of larger entries, or -1 if item is not in the heap
+	 */
+	@Override
+	public int getRank(T item) {
+		checkInit();
 		
+		if (index.getValue(item) == null) {
+			return -1;  // not in heap
+		}
 		
+		int rank = 0;
+		int[] stack = new int[32];  // heap indexes still to visit
+		int top = 0;
+		if (!isEmpty()) {
+			stack[top++] = 1;
+		}
 		
+		while (top > 0) {
+			int heapIndex = stack[--top];
+			if (heap[heapIndex].compareTo(item) > 0) {
+				// larger -- its children may be larger too
+				rank++;
+				int leftCIndex = leftChild(heapIndex);
+				if (top + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				if (leftCIndex <= lastIndex) {
+					stack[top++] = leftCIndex;
+				}
+				if (leftCIndex + 1 <= lastIndex) {
+					stack[top++] = leftCIndex + 1;
+				}
+			}
+		}
 		
+		return rank;
+	}
+	
+	/**
+	 * Replace every entry; an array sorted largest first is already a max heap
+	 * @param items new entries, sorted largest first
+	 */
+	@Override
+	public void rebuild(T[] items) {
+		checkInit();
 		
+		if (items.length + 1 > MAX_LOAD * heap.length) {
+			// grow once to fit every item
+			int newSize = heap.length;
+			while (items.length + 1 > MAX_LOAD * newSize) {
+				newSize *= 2;
+			}
+			sizeCheck(newSize);
+			heap = Arrays.copyOf(heap, newSize);
+			positions = Arrays.copyOf(positions, newSize);
+		}
 		
+		if (lastIndex > items.length) {
+			// do not hold on to old entries
+			Arrays.fill(heap, items.length + 1, lastIndex + 1, null);
+			Arrays.fill(positions, items.length + 1, lastIndex + 1, null);
+		}
+		System.arraycopy(items, 0, heap, 1, items.length);
+		index = new Dictionary<>(Math.max(items.length, 1), false, true);
+		for (int i = 1; i <= items.length; i++) {
+			positions[i] = new Position(i);
+			index.add(heap[i], positions[i]);
+		}
 		
-		return null;  // TODO add real return statement
+		lastIndex = items.length;
+		resetExtraction();
 	}
 	
+	/**
+	 * Create the extraction state of getNMax
+	 */
+	private void initExtraction() {
+		@SuppressWarnings("unchecked")
+		T[] tmp = (T[]) new Comparable<?>[DEFAULT_EXTRACTED];
+		extracted = tmp;
+		numberExtracted = 0;
+		candidates = new PriorityQueue<>((a, b) -> heap[b].compareTo(heap[a]));  // largest entry first
+	}
 	
-	
+	/**
+	 * Forget the extraction state of getNMax; called whenever the heap changes
+	 */
+	private void resetExtraction() {
+		if (numberExtracted > 0 || !candidates.isEmpty()) {
+			numberExtracted = 0;
+			candidates.clear();
+		}
+	}
 	
 	
 	/**
 	 * Get the size of the heap
 	 * @return size of heap
 	 */
+	@Override
 	public int getSize() {
 		return lastIndex;
 	}
@@ -296,9 +468,17 @@ public class MaxHeap<T extends Comparable<? super T>> {
 	private int leftChild(int index) {
 		return 2 * index; 
 	}
-	
-	
-	
-	
+
+	private static class Position {
+		private int index;  // index in heap
+
+		/**
+		 * Position constructor
+		 * @param index index in heap
+		 */
+		private Position(int index) {
+			this.index = index;
+		}
+	}
 	
 }
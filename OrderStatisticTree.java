@@ -0,0 +1,356 @@
+/**
+ * A treap where every node also knows the size of its subtree
+ * Ordered by compareTo, with random priorities keeping it balanced in expectation,
+ * so adding, removing and finding the n'th most max entry are all O(log n)
+ * no matter how reads and writes are mixed
+ * @author Zachary Zampa
+ * @since 2019/05/16
+ *
+ * @param <T>
+ */
+
+
+public class OrderStatisticTree<T extends Comparable<? super T>> implements RankingInterface<T> {
+
+	// Tree Properties
+	private Node<T> root;
+	private int seed;  // state of the priority generator
+
+
+	/**
+	 * Empty Constructor
+	 */
+	public OrderStatisticTree() {
+		root = null;
+		seed = 0x2545F491;  // fixed seed -- same input gives the same shape
+	}
+
+	@Override
+	public void add(T item) {
+		root = insert(root, new Node<>(item, nextPriority()));
+	}
+
+	@Override
+	public void updateEntry(T oldItem, T newItem) {
+		// the entry moves, so take it out at its old position and put it back in at its new one
+		root = remove(root, oldItem);
+		add(newItem);
+	}
+
+	/**
+	 * Remove an entry
+	 * @param item entry as it is currently stored
+	 */
+	public void remove(T item) {
+		root = remove(root, item);
+	}
+
+	@Override
+	public T getNMax(int n) {
+		Node<T> current = root;
+
+		while (current != null) {
+			int rightSize = size(current.right);  // entries larger than current
+
+			if (n < rightSize) {
+				// rank is among the larger entries
+				current = current.right;
+			} else if (n == rightSize) {
+				// found
+				return current.item;
+			} else {
+				// skip current and everything larger
+				n -= rightSize + 1;
+				current = current.left;
+			}
+		}
+
+		return null;  // rank out of range
+	}
+
+	@Override
+	public void getNMaxRange(int from, T[] range) {
+		collect(root, 0, from, range, 0);
+	}
+
+	/**
+	 * Copy the entries of a subtree whose ranks fall in a range, largest first
+	 * Subtrees that lie wholly outside the range are skipped using their sizes
+	 * @param node root of the subtree
+	 * @param base rank of the largest entry in the subtree
+	 * @param from first rank wanted
+	 * @param range array being filled
+	 * @param filled entries already in range
+	 * @return entries in range afterwards
+	 */
+	private int collect(Node<T> node, int base, int from, T[] range, int filled) {
+		if (node == null || filled == range.length || base + node.size <= from) {
+			return filled;
+		}
+
+		int rank = base + size(node.right);  // rank of node itself
+
+		if (from < rank) {
+			// part of the range is among the larger entries
+			filled = collect(node.right, base, from, range, filled);
+		}
+		if (filled < range.length && rank >= from) {
+			range[filled++] = node.item;
+		}
+
+		return collect(node.left, rank + 1, from, range, filled);
+	}
+
+	@Override
+	public int getRank(T item) {
+		Node<T> current = root;
+		int rank = 0;  // larger entries passed so far
+
+		while (current != null) {
+			int comp = item.compareTo(current.item);
+
+			if (comp < 0) {
+				// current and everything larger than it rank above item
+				rank += size(current.right) + 1;
+				current = current.left;
+			} else if (comp > 0) {
+				current = current.right;
+			} else {
+				// found
+				return rank + size(current.right);
+			}
+		}
+
+		return -1;  // not in tree
+	}
+
+	@Override
+	public void rebuild(T[] items) {
+		root = build(items, 0, items.length - 1);
+	}
+
+	/**
+	 * Build a balanced subtree from part of an array sorted largest first -- O(n)
+	 * Each node's priority is raised to its children's, so the result is a valid treap
+	 * @param items entries sorted largest first
+	 * @param from first index of the part
+	 * @param to last index of the part
+	 * @return root of the subtree
+	 */
+	private Node<T> build(T[] items, int from, int to) {
+		if (from > to) {
+			return null;
+		}
+
+		int mid = (from + to) >>> 1;
+		Node<T> node = new Node<>(items[mid], nextPriority());
+		node.right = build(items, from, mid - 1);  // larger entries come first
+		node.left = build(items, mid + 1, to);
+
+		if (node.left != null && node.left.priority > node.priority) {
+			node.priority = node.left.priority;
+		}
+		if (node.right != null && node.right.priority > node.priority) {
+			node.priority = node.right.priority;
+		}
+
+		resize(node);
+		return node;
+	}
+
+	/**
+	 * Count the entries larger than an item, whether or not the item is stored
+	 * @param item item to compare against
+	 * @return number of larger entries
+	 */
+	public int countGreater(T item) {
+		Node<T> current = root;
+		int greater = 0;
+
+		while (current != null) {
+			if (item.compareTo(current.item) < 0) {
+				// current and everything larger than it count
+				greater += size(current.right) + 1;
+				current = current.left;
+			} else {
+				current = current.right;
+			}
+		}
+
+		return greater;
+	}
+
+	@Override
+	public int getSize() {
+		return size(root);
+	}
+
+	/**
+	 * Check if tree is empty
+	 * @return true if empty
+	 */
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	/**
+	 * Remove every entry
+	 */
+	public void clear() {
+		root = null;
+	}
+
+	/**
+	 * Insert a node under a subtree, rotating it up while its priority is higher
+	 * @param subtree root of the subtree
+	 * @param node node to insert
+	 * @return new root of the subtree
+	 */
+	private Node<T> insert(Node<T> subtree, Node<T> node) {
+		if (subtree == null) {
+			return node;
+		}
+
+		if (node.item.compareTo(subtree.item) < 0) {
+			subtree.left = insert(subtree.left, node);
+			if (subtree.left.priority > subtree.priority) {
+				subtree = rotateRight(subtree);
+			}
+		} else {
+			subtree.right = insert(subtree.right, node);
+			if (subtree.right.priority > subtree.priority) {
+				subtree = rotateLeft(subtree);
+			}
+		}
+
+		resize(subtree);
+		return subtree;
+	}
+
+	/**
+	 * Remove the node equal to item from a subtree
+	 * @param subtree root of the subtree
+	 * @param item entry to remove
+	 * @return new root of the subtree
+	 */
+	private Node<T> remove(Node<T> subtree, T item) {
+		if (subtree == null) {
+			return null;  // not here
+		}
+
+		int comp = item.compareTo(subtree.item);
+
+		if (comp < 0) {
+			subtree.left = remove(subtree.left, item);
+		} else if (comp > 0) {
+			subtree.right = remove(subtree.right, item);
+		} else {
+			// found -- join its children in its place
+			return merge(subtree.left, subtree.right);
+		}
+
+		resize(subtree);
+		return subtree;
+	}
+
+	/**
+	 * Join two subtrees where everything in left is smaller than everything in right
+	 * @param left smaller subtree
+	 * @param right larger subtree
+	 * @return root of the joined subtree
+	 */
+	private Node<T> merge(Node<T> left, Node<T> right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			resize(left);
+			return left;
+		} else {
+			right.left = merge(left, right.left);
+			resize(right);
+			return right;
+		}
+	}
+
+	/**
+	 * Rotate a node's left child up into its place
+	 * @param node node to rotate down
+	 * @return new root of the subtree
+	 */
+	private Node<T> rotateRight(Node<T> node) {
+		Node<T> child = node.left;
+		node.left = child.right;
+		child.right = node;
+		resize(node);
+		resize(child);
+		return child;
+	}
+
+	/**
+	 * Rotate a node's right child up into its place
+	 * @param node node to rotate down
+	 * @return new root of the subtree
+	 */
+	private Node<T> rotateLeft(Node<T> node) {
+		Node<T> child = node.right;
+		node.right = child.left;
+		child.left = node;
+		resize(node);
+		resize(child);
+		return child;
+	}
+
+	/**
+	 * Recompute the subtree size of a node from its children
+	 * @param node node to fix
+	 */
+	private void resize(Node<T> node) {
+		node.size = 1 + size(node.left) + size(node.right);
+	}
+
+	/**
+	 * Size of a possibly empty subtree
+	 * @param node root of the subtree
+	 * @return number of nodes
+	 */
+	private int size(Node<T> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	/**
+	 * Next pseudo random priority -- xorshift
+	 * @return priority
+	 */
+	private int nextPriority() {
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return seed;
+	}
+
+	private static class Node<Tp> {
+		private Tp item;
+		private int priority;
+		private int size;  // nodes in this subtree, this one included
+		private Node<Tp> left;  // smaller entries
+		private Node<Tp> right;  // larger entries
+
+		/**
+		 * Node constructor
+		 * @param item entry to hold
+		 * @param priority heap priority
+		 */
+		private Node(Tp item, int priority) {
+			this.item = item;
+			this.priority = priority;
+			this.size = 1;
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counts a file into a StudentLookup on every core of a ForkJoinPool
+ * The file is cut into byte ranges whose ends are moved forward onto a space or line
+ * break, so no word is split between two ranges; each range is tokenized on a pool
+ * worker straight from the mapped file
+ * Every worker counts into its own CountTable, touched by no other thread, so a word
+ * repeated all through the file costs one table increment per occurrence and one
+ * merge per worker, rather than a ranking update per occurrence
+ * Once every range is counted the tables are summed and merged into the lookup in bulk
+ * @author Zachary Zampa
+ * @since 2019/05/27
+ *
+ */
+
+
+public class ParallelIngest {
+
+	// Ingest Properties
+	private static final int RANGES_PER_WORKER = 4;  // ranges per worker, so an idle worker can steal
+	private static final long MIN_RANGE = 1 << 20;  // smallest range worth a task -- 1 MB
+	private static final int WORKER_CAPACITY = 1 << 16;  // starting capacity of a worker's table; grows if needed
+	private static final int ALIGN_BLOCK = 4096;  // bytes read at a time while looking for a range end
+
+
+	/**
+	 * Not instantiable; see countFile
+	 */
+	private ParallelIngest() {
+	}
+
+	/**
+	 * Count every word of a file into a lookup on the common pool
+	 * @param fileName file to read
+	 * @param lookup lookup to count into
+	 */
+	public static void countFile(String fileName, StudentLookup lookup) {
+		countFile(fileName, lookup, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Count every word of a file into a lookup on a given pool
+	 * The lookup must not be used by another thread until this returns
+	 * @param fileName file to read
+	 * @param lookup lookup to count into
+	 * @param pool pool to tokenize and count on
+	 */
+	public static void countFile(String fileName, StudentLookup lookup, ForkJoinPool pool) {
+		countFile(fileName, lookup, pool, MIN_RANGE);
+	}
+
+	/**
+	 * Count every word of a file into a lookup on a given pool, with a given smallest range
+	 * A small minRange lets a small file be cut into many ranges
+	 * @param fileName file to read
+	 * @param lookup lookup to count into
+	 * @param pool pool to tokenize and count on
+	 * @param minRange smallest range worth a task, in bytes
+	 */
+	static void countFile(String fileName, StudentLookup lookup, ForkJoinPool pool, long minRange) {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long[] bounds = split(channel, pool.getParallelism() * RANGES_PER_WORKER, minRange);
+			ConcurrentHashMap<Thread, CountTable> tables = new ConcurrentHashMap<>();
+
+			pool.invoke(new Ranges(channel, bounds, 0, bounds.length - 1, tables));
+			merge(tables.values().toArray(new CountTable[0]), lookup);
+		} catch (NoSuchFileException ex) {
+			System.err.println("Unable to open file '" + fileName + "'");
+			System.exit(1);
+		} catch (IOException | UncheckedIOException ex) {
+			System.err.println("Error reading file '" + fileName + "'");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Cut a file into ranges that each end on a space or line break, or at the end of the file
+	 * @param channel file to cut
+	 * @param most most ranges wanted; fewer are made for a small file
+	 * @param minRange smallest range worth a task, in bytes
+	 * @return bounds; range i is bounds[i] up to bounds[i + 1]
+	 * @throws IOException if reading fails
+	 */
+	private static long[] split(FileChannel channel, int most, long minRange) throws IOException {
+		long size = channel.size();
+		int numberOfRanges = (int) Math.max(1, Math.min(most, size / minRange));
+		long[] bounds = new long[numberOfRanges + 1];
+		bounds[numberOfRanges] = size;
+
+		for (int i = 1; i < numberOfRanges; i++) {
+			bounds[i] = align(channel, Math.max(bounds[i - 1], size / numberOfRanges * i), size);
+		}
+
+		return bounds;
+	}
+
+	/**
+	 * Find the first space or line break at or after a position
+	 * @param channel file to search
+	 * @param position where to start
+	 * @param size size of the file
+	 * @return offset of the byte, or size if there is none
+	 * @throws IOException if reading fails
+	 */
+	private static long align(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer block = ByteBuffer.allocate(ALIGN_BLOCK);
+
+		while (position < size) {
+			block.clear();
+			int read = channel.read(block, position);
+			for (int i = 0; i < read; i++) {
+				if (Tokenizer.isSplit(block.get(i))) {
+					return position + i;
+				}
+			}
+			position += Math.max(read, 0);
+		}
+
+		return size;
+	}
+
+	/**
+	 * Sum the workers' tables and merge the sum into a lookup in bulk
+	 * @param tables one table per worker that counted
+	 * @param lookup lookup to count into
+	 */
+	private static void merge(CountTable[] tables, StudentLookup lookup) {
+		if (tables.length == 0) {
+			return;  // empty file
+		}
+
+		// add every table into the largest, which then holds the sum
+		int largest = 0;
+		for (int i = 1; i < tables.length; i++) {
+			if (tables[i].getSize() > tables[largest].getSize()) {
+				largest = i;
+			}
+		}
+		CountTable sum = tables[largest];
+		for (int i = 0; i < tables.length; i++) {
+			if (i != largest) {
+				tables[i].forEach(sum::increment);
+			}
+		}
+
+		String[] keys = new String[sum.getSize()];
+		int[] amounts = new int[keys.length];
+		int[] filled = {0};
+		sum.forEach((s, count) -> {
+			keys[filled[0]] = s;
+			amounts[filled[0]++] = count;
+		});
+		lookup.mergeCounts(keys, amounts, keys.length);
+	}
+
+	private static class Ranges extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private FileChannel channel;
+		private long[] bounds;  // every range's bounds
+		private int first;  // first range of this task
+		private int last;  // range after the last of this task
+		private ConcurrentHashMap<Thread, CountTable> tables;  // each worker's table
+
+		/**
+		 * Ranges constructor
+		 * @param channel file to read
+		 * @param bounds every range's bounds
+		 * @param first first range to count
+		 * @param last range after the last to count
+		 * @param tables each worker's table
+		 */
+		private Ranges(FileChannel channel, long[] bounds, int first, int last, ConcurrentHashMap<Thread, CountTable> tables) {
+			this.channel = channel;
+			this.bounds = bounds;
+			this.first = first;
+			this.last = last;
+			this.tables = tables;
+		}
+
+		@Override
+		protected void compute() {
+			if (last - first > 1) {
+				// halve until a task has one range
+				int middle = (first + last) >>> 1;
+				invokeAll(new Ranges(channel, bounds, first, middle, tables), new Ranges(channel, bounds, middle, last, tables));
+				return;
+			}
+
+			// only this thread touches its table
+			CountTable table = tables.computeIfAbsent(Thread.currentThread(), thread -> new CountTable(WORKER_CAPACITY));
+			Tokenizer.WordSink sink = (bytes, length) -> table.increment(bytes, 0, length, 1);
+			Tokenizer tokenizer = new Tokenizer();
+
+			try {
+				tokenizer.scanRange(channel, bounds[first], bounds[last], sink);
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			tokenizer.finish(sink);  // the last range may end mid word at the end of the file
+		}
+	}
+
+}
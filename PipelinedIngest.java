@@ -0,0 +1,597 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Counts a file into a StudentLookup through a three stage pipeline
+ * A reader thread reads the file into blocks, each cut just after its last space or
+ * line break so no word spans two blocks, and deals them out to one or more tokenizer
+ * threads; each tokenizer packs the words of its blocks into batches, and the calling
+ * thread counts the batches into the lookup -- the only thread that touches it, and one
+ * that never reads the file or scans bytes for words
+ * Stages hand over work through rings of slots allocated up front and reused, one
+ * producer and one consumer per ring, in the style of the LMAX Disruptor: a producer
+ * waits for a free slot when its ring is full, which holds back a stage that runs ahead,
+ * and a consumer waits while its ring is empty
+ * Every stage keeps counters of what it handled and how long it waited, available
+ * from getStages once a count is done
+ * @author Zachary Zampa
+ * @since 2019/05/28
+ *
+ */
+
+
+public class PipelinedIngest {
+
+	// Pipeline Properties
+	private int numberOfTokenizers;  // tokenizer threads
+	private Stage[] stages;  // reader, then each tokenizer, then the counter
+	private static final int BLOCK_SIZE = 1 << 16;  // bytes read per block -- 64 KB; a block holding one longer word grows
+	private static final int BLOCK_SLOTS = 16;  // blocks in each tokenizer's ring
+	private static final int BATCH_WORDS = 4096;  // most words in a batch
+	private static final int BATCH_BYTES = 1 << 15;  // starting room for a batch's bytes -- 32 KB
+	private static final int BATCH_SLOTS = 16;  // batches in each tokenizer's ring to the counter
+	private static final int SPINS = 64;  // times a waiting thread yields before it parks
+	private static final long PARK_NANOS = 20000;  // how long a waiting thread parks at a time -- 20 us
+
+
+	/**
+	 * Empty Constructor -- one tokenizer
+	 */
+	public PipelinedIngest() {
+		this(1);
+	}
+
+	/**
+	 * Tokenizer count based Constructor
+	 * @param numberOfTokenizers number of tokenizer threads
+	 */
+	public PipelinedIngest(int numberOfTokenizers) {
+		tokenizerCheck(numberOfTokenizers);
+		this.numberOfTokenizers = numberOfTokenizers;
+		stages = new Stage[0];
+	}
+
+	/**
+	 * Check if there is at least one tokenizer
+	 * @param numberOfTokenizers number of tokenizer threads
+	 */
+	private void tokenizerCheck(int numberOfTokenizers) {
+		if (numberOfTokenizers < 1) {
+			// nothing would tokenize
+			System.out.printf("ERROR: PipelinedIngest tokenizers [%d] exceeds limits", numberOfTokenizers);
+			System.exit(1);  // end program with error code
+		}
+	}
+
+	/**
+	 * Count every word of a file into a lookup; returns once every word is counted
+	 * The lookup is updated on the calling thread only
+	 * @param fileName file to read
+	 * @param lookup lookup to count into
+	 */
+	public void countFile(String fileName, StudentLookup lookup) {
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		} catch (NoSuchFileException ex) {
+			System.err.println("Unable to open file '" + fileName + "'");
+			System.exit(1);
+		} catch (IOException ex) {
+			System.err.println("Error reading file '" + fileName + "'");
+			System.exit(1);
+		}
+
+		// rings between the stages, filled up front
+		Ring<Block>[] blocks = newRings(BLOCK_SLOTS, Block::new);
+		Ring<Batch>[] batches = newRings(BATCH_SLOTS, Batch::new);
+		stages = new Stage[numberOfTokenizers + 2];
+		stages[0] = new Stage("read", "bytes");
+		for (int i = 0; i < numberOfTokenizers; i++) {
+			stages[i + 1] = new Stage("tokenize " + i, "words");
+		}
+		stages[numberOfTokenizers + 1] = new Stage("count", "words");
+
+		Thread[] threads = new Thread[numberOfTokenizers + 1];
+		FileChannel file = channel;
+		threads[0] = new Thread(() -> read(file, fileName, blocks, stages[0]), "ingest-read");
+		for (int i = 0; i < numberOfTokenizers; i++) {
+			int number = i;
+			threads[i + 1] = new Thread(() -> tokenize(blocks[number], batches[number], stages[number + 1]), "ingest-tokenize-" + i);
+		}
+		for (Thread thread : threads) {
+			thread.setDaemon(true);  // a failed count does not keep the program alive
+			thread.start();
+		}
+
+		count(batches, lookup, stages[numberOfTokenizers + 1]);
+
+		try {
+			for (Thread thread : threads) {
+				thread.join();  // they end right after their last hand over; this also publishes their counters
+			}
+			channel.close();
+		} catch (InterruptedException e) {
+			System.out.println("ERROR: Interrupted while waiting for the pipeline");
+			System.exit(1);  // exit with error code
+		} catch (IOException ex) {
+			System.err.println("Error reading file '" + fileName + "'");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Get the counters of every stage of the last count
+	 * @return reader, then each tokenizer, then the counter
+	 */
+	public Stage[] getStages() {
+		return Arrays.copyOf(stages, stages.length);
+	}
+
+	/**
+	 * Make one ring per tokenizer
+	 * @param slots slots per ring
+	 * @param factory makes a slot
+	 * @return rings
+	 */
+	private <T> Ring<T>[] newRings(int slots, Supplier<T> factory) {
+		@SuppressWarnings("unchecked")
+		Ring<T>[] rings = (Ring<T>[]) new Ring<?>[numberOfTokenizers];
+		for (int i = 0; i < numberOfTokenizers; i++) {
+			rings[i] = new Ring<>(slots, factory);
+		}
+		return rings;
+	}
+
+	/**
+	 * Reader stage -- read the file into blocks that end on a space or line break and
+	 * deal them out to the tokenizers in turn, then send each tokenizer an end block
+	 * @param channel file to read
+	 * @param fileName file name, for errors
+	 * @param blocks each tokenizer's ring of blocks
+	 * @param stage counters
+	 */
+	private static void read(FileChannel channel, String fileName, Ring<Block>[] blocks, Stage stage) {
+		stage.start();
+		byte[] carry = new byte[BLOCK_SIZE];  // the word cut off at the end of the last block
+		int carryLength = 0;
+		int next = 0;  // tokenizer given the next block
+		boolean ended = false;
+
+		try {
+			while (!ended) {
+				Block block = blocks[next].claim(stage);
+				block.last = false;
+				if (block.bytes.length <= carryLength) {
+					block.bytes = new byte[carryLength * 2];  // the cut off word is longer than the block
+				}
+				System.arraycopy(carry, 0, block.bytes, 0, carryLength);
+				int filled = carryLength;
+				int searched = carryLength;  // the cut off word has no split in it
+				int end;  // bytes of the block that are handed over
+
+				while (true) {
+					int read = channel.read(ByteBuffer.wrap(block.bytes, filled, block.bytes.length - filled));
+					if (read == -1) {
+						ended = true;
+						end = filled;
+						break;
+					}
+					filled += read;
+					stage.units += read;
+
+					if (filled == block.bytes.length) {
+						end = lastSplit(block.bytes, searched, filled) + 1;
+						if (end > 0) {
+							break;
+						}
+						searched = filled;
+						block.bytes = Arrays.copyOf(block.bytes, block.bytes.length * 2);  // one word fills the block
+					}
+				}
+
+				// keep the cut off word for the next block
+				carryLength = filled - end;
+				if (carryLength > carry.length) {
+					carry = new byte[block.bytes.length];
+				}
+				System.arraycopy(block.bytes, end, carry, 0, carryLength);
+				block.length = end;
+
+				blocks[next].publish();
+				stage.items++;
+				next = (next + 1) % blocks.length;
+			}
+
+			for (Ring<Block> ring : blocks) {
+				ring.claim(stage).last = true;
+				ring.publish();
+			}
+		} catch (IOException ex) {
+			System.err.println("Error reading file '" + fileName + "'");
+			System.exit(1);
+		}
+		stage.finish();
+	}
+
+	/**
+	 * Find the last space or line break in a range of bytes
+	 * @param bytes bytes to search
+	 * @param from first index to search
+	 * @param to index after the last to search
+	 * @return index, or -1 if there is none
+	 */
+	private static int lastSplit(byte[] bytes, int from, int to) {
+		for (int i = to - 1; i >= from; i--) {
+			if (Tokenizer.isSplit(bytes[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Tokenizer stage -- pack the words of each block into batches until the end block
+	 * @param blocks ring to take blocks from
+	 * @param batches ring to hand batches to
+	 * @param stage counters
+	 */
+	private static void tokenize(Ring<Block> blocks, Ring<Batch> batches, Stage stage) {
+		stage.start();
+		Tokenizer tokenizer = new Tokenizer();
+		Batch[] batch = {batches.claim(stage)};  // batch being filled
+		batch[0].clear();
+
+		Tokenizer.WordSink sink = (bytes, length) -> {
+			if (!batch[0].fits(length)) {
+				batches.publish();
+				stage.items++;
+				batch[0] = batches.claim(stage);
+				batch[0].clear();
+			}
+			batch[0].add(bytes, length);
+			stage.units++;
+		};
+
+		while (true) {
+			Block block = blocks.take(stage);
+			if (block.last) {
+				blocks.release();
+				break;
+			}
+			tokenizer.scan(ByteBuffer.wrap(block.bytes, 0, block.length), sink);
+			tokenizer.finish(sink);  // a block ends on a split or at the end of the file
+			blocks.release();
+		}
+
+		// hand over the partial batch, marked as this tokenizer's last
+		batch[0].last = true;
+		batches.publish();
+		stage.items++;
+		stage.finish();
+	}
+
+	/**
+	 * Counter stage -- count the batches of every tokenizer into the lookup until each has sent its last
+	 * @param batches each tokenizer's ring of batches
+	 * @param lookup lookup to count into
+	 * @param stage counters
+	 */
+	private static void count(Ring<Batch>[] batches, StudentLookup lookup, Stage stage) {
+		stage.start();
+		boolean[] ended = new boolean[batches.length];
+		int running = batches.length;
+		int spins = 0;
+		long waitStart = 0;
+
+		while (running > 0) {
+			boolean found = false;
+
+			for (int i = 0; i < batches.length; i++) {
+				Batch batch = ended[i] ? null : batches[i].poll();
+				if (batch == null) {
+					continue;
+				}
+
+				int start = 0;
+				for (int w = 0; w < batch.size; w++) {
+					lookup.addBytes(1, batch.bytes, start, batch.ends[w] - start);
+					start = batch.ends[w];
+				}
+				stage.units += batch.size;
+				stage.items++;
+
+				if (batch.last) {
+					ended[i] = true;
+					running--;
+				}
+				batches[i].release();
+				found = true;
+			}
+
+			if (found) {
+				if (spins > 0) {
+					stage.waitNanos += System.nanoTime() - waitStart;
+					spins = 0;
+				}
+			} else if (running > 0) {
+				// every ring is empty
+				if (spins == 0) {
+					stage.stalls++;
+					waitStart = System.nanoTime();
+				}
+				backOff(spins++);
+			}
+		}
+		stage.finish();
+	}
+
+	/**
+	 * Wait a little while a ring is full or empty -- yield at first, then park
+	 * @param spins times already waited
+	 */
+	private static void backOff(int spins) {
+		if (spins < SPINS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+
+	/**
+	 * Counters of one pipeline stage
+	 * Each is written by its stage's thread only, and read once the count is done
+	 */
+	public static class Stage {
+		private String name;
+		private String unit;  // what units counts
+		private long items;  // blocks or batches handed on
+		private long units;  // bytes or words handled
+		private long stalls;  // times it waited on a full or empty ring
+		private long waitNanos;  // time spent waiting
+		private long startNanos;
+		private long finishNanos;
+
+		/**
+		 * Stage constructor
+		 * @param name stage name
+		 * @param unit what units counts
+		 */
+		private Stage(String name, String unit) {
+			this.name = name;
+			this.unit = unit;
+		}
+
+		/**
+		 * Mark the start of the stage
+		 */
+		private void start() {
+			startNanos = System.nanoTime();
+		}
+
+		/**
+		 * Mark the end of the stage
+		 */
+		private void finish() {
+			finishNanos = System.nanoTime();
+		}
+
+		/**
+		 * Get the stage name
+		 * @return name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Get the number of blocks or batches the stage handed on
+		 * @return items
+		 */
+		public long getItems() {
+			return items;
+		}
+
+		/**
+		 * Get the number of bytes (read) or words (tokenize, count) the stage handled
+		 * @return units
+		 */
+		public long getUnits() {
+			return units;
+		}
+
+		/**
+		 * Get the number of times the stage waited on a full or empty ring
+		 * A producer that stalls often is held back by the stage after it
+		 * @return stalls
+		 */
+		public long getStalls() {
+			return stalls;
+		}
+
+		/**
+		 * Get the time the stage spent waiting on its rings
+		 * @return milliseconds
+		 */
+		public double getWaitMillis() {
+			return waitNanos / 1000000.0;
+		}
+
+		/**
+		 * Get the time from the start to the end of the stage
+		 * @return milliseconds
+		 */
+		public double getElapsedMillis() {
+			return (finishNanos - startNanos) / 1000000.0;
+		}
+
+		/**
+		 * Get the units handled per second over the whole stage
+		 * @return throughput
+		 */
+		public double getThroughput() {
+			return finishNanos == startNanos ? 0 : units * 1000000000.0 / (finishNanos - startNanos);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d %s, %d handed on, %.1f ms (%.0f %s/s), %d stalls, %.1f ms waiting",
+					name, units, unit, items, getElapsedMillis(), getThroughput(), unit, stalls, getWaitMillis());
+		}
+	}
+
+	private static class Ring<T> {
+		private Object[] slots;
+		private int mask;  // slots.length - 1; the length is a power of two
+		private AtomicLong published;  // slots handed to the consumer so far
+		private AtomicLong released;  // slots handed back to the producer so far
+		private long claimed;  // producer only -- slots claimed so far
+		private long seenReleased;  // producer only -- released as last read
+		private long taken;  // consumer only -- slots released or being read
+		private long seenPublished;  // consumer only -- published as last read
+
+		/**
+		 * Ring constructor
+		 * @param size number of slots; a power of two
+		 * @param factory makes each slot
+		 */
+		private Ring(int size, Supplier<T> factory) {
+			slots = new Object[size];
+			for (int i = 0; i < size; i++) {
+				slots[i] = factory.get();
+			}
+			mask = size - 1;
+			published = new AtomicLong();
+			released = new AtomicLong();
+		}
+
+		/**
+		 * Producer -- get the next slot to fill, waiting while the ring is full
+		 * @param stage counters of the producer
+		 * @return slot; handed over by publish
+		 */
+		@SuppressWarnings("unchecked")
+		private T claim(Stage stage) {
+			if (claimed - seenReleased == slots.length) {
+				seenReleased = released.get();
+
+				if (claimed - seenReleased == slots.length) {
+					// full -- the consumer is behind
+					stage.stalls++;
+					long start = System.nanoTime();
+					int spins = 0;
+					do {
+						backOff(spins++);
+						seenReleased = released.get();
+					} while (claimed - seenReleased == slots.length);
+					stage.waitNanos += System.nanoTime() - start;
+				}
+			}
+			return (T) slots[(int) claimed & mask];
+		}
+
+		/**
+		 * Producer -- hand the claimed slot to the consumer
+		 */
+		private void publish() {
+			published.lazySet(++claimed);  // ordered after the writes to the slot
+		}
+
+		/**
+		 * Consumer -- get the next published slot without waiting
+		 * @return slot, or null if the ring is empty; handed back by release
+		 */
+		@SuppressWarnings("unchecked")
+		private T poll() {
+			if (taken == seenPublished) {
+				seenPublished = published.get();
+				if (taken == seenPublished) {
+					return null;
+				}
+			}
+			return (T) slots[(int) taken & mask];
+		}
+
+		/**
+		 * Consumer -- get the next published slot, waiting while the ring is empty
+		 * @param stage counters of the consumer
+		 * @return slot; handed back by release
+		 */
+		private T take(Stage stage) {
+			T slot = poll();
+
+			if (slot == null) {
+				// empty -- the producer is behind
+				stage.stalls++;
+				long start = System.nanoTime();
+				int spins = 0;
+				do {
+					backOff(spins++);
+					slot = poll();
+				} while (slot == null);
+				stage.waitNanos += System.nanoTime() - start;
+			}
+			return slot;
+		}
+
+		/**
+		 * Consumer -- hand the slot being read back to the producer
+		 */
+		private void release() {
+			released.lazySet(++taken);
+		}
+	}
+
+	private static class Block {
+		private byte[] bytes = new byte[BLOCK_SIZE];
+		private int length;  // bytes handed over
+		private boolean last;  // no more blocks follow
+	}
+
+	private static class Batch {
+		private byte[] bytes = new byte[BATCH_BYTES];  // words back to back
+		private int[] ends = new int[BATCH_WORDS];  // end of each word in bytes
+		private int size;  // number of words
+		private boolean last;  // no more batches follow
+
+		/**
+		 * Empty the batch for reuse
+		 */
+		private void clear() {
+			size = 0;
+			last = false;
+		}
+
+		/**
+		 * Check if a word fits; a word too long for an empty batch always fits, as it grows
+		 * @param length bytes in the word
+		 * @return true if it can be added
+		 */
+		private boolean fits(int length) {
+			int used = size == 0 ? 0 : ends[size - 1];
+			return size == 0 || (size < BATCH_WORDS && used + length <= bytes.length);
+		}
+
+		/**
+		 * Add a word
+		 * @param word array holding the word from index 0
+		 * @param length bytes in the word
+		 */
+		private void add(byte[] word, int length) {
+			int used = size == 0 ? 0 : ends[size - 1];
+			if (used + length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, used + length);  // one very long word
+			}
+			System.arraycopy(word, 0, bytes, used, length);
+			ends[size++] = used + length;
+		}
+	}
+
+}
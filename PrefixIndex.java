@@ -0,0 +1,275 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * A radix tree over the counted strings for prefix autocomplete
+ * Each node stands for the prefix spelled by the edge labels above it and caches the
+ * most popular strings below it, best first; counts only grow, so the caches stay exact
+ * by offering a string's new count to the nodes along its path on every update
+ * A query walks the prefix and copies one cache -- O(prefix length + k)
+ * @author Zachary Zampa
+ * @since 2019/05/20
+ *
+ */
+
+
+public class PrefixIndex {
+
+	// Index Properties
+	private Node root;  // empty prefix; its cache is the overall top
+	private int cacheSize;  // strings cached per node
+	private static final int DEFAULT_CACHE_SIZE = 10;  // default strings cached per node
+
+
+	/**
+	 * Empty Constructor
+	 */
+	public PrefixIndex() {
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Cache size based Constructor
+	 * @param cacheSize strings cached per node; queries for up to this many are O(prefix length + k)
+	 */
+	public PrefixIndex(int cacheSize) {
+		this.cacheSize = cacheSize;
+		root = new Node("", cacheSize);
+	}
+
+	/**
+	 * Record the new count of a string, inserting it if it is not here yet
+	 * Counts may only grow
+	 * @param s string counted
+	 * @param count its new count
+	 */
+	public void update(String s, int count) {
+		DataWrapper entry = new DataWrapper(s, count);  // shared by every cache it lands in
+		Node node = root;
+		int depth = 0;  // characters of s matched so far
+		node.offer(entry);
+
+		while (depth < s.length()) {
+			Node child = node.getChild(s.charAt(depth));
+
+			if (child == null) {
+				// no edge starts with the next character -- hang the rest of s off node
+				child = new Node(s.substring(depth), cacheSize);
+				node.addChild(child);
+			} else {
+				int common = commonLength(child.label, s, depth);
+				if (common < child.label.length()) {
+					// s leaves the edge part way -- split it there
+					child = split(node, child, common);
+				}
+			}
+
+			depth += child.label.length();
+			node = child;
+			node.offer(entry);
+		}
+
+		node.entry = entry;  // s ends here
+	}
+
+	/**
+	 * Get the most popular strings that start with a prefix, most popular first
+	 * @param prefix prefix to complete
+	 * @param k number of strings wanted
+	 * @return up to k strings with their counts
+	 */
+	public DataWrapper[] lookup(String prefix, int k) {
+		Node node = find(prefix);
+
+		if (node == null || k <= 0) {
+			return new DataWrapper[0];  // nothing starts with prefix
+		}
+
+		if (k <= node.topSize || node.topSize < cacheSize) {
+			// the cache holds the answer -- either enough of it or everything below node
+			return Arrays.copyOf(node.top, Math.min(k, node.topSize));
+		}
+
+		// more wanted than is cached -- gather the whole subtree
+		ArrayList<DataWrapper> below = new ArrayList<>();
+		collect(node, below);
+		below.sort(Collections.reverseOrder());
+		return below.subList(0, Math.min(k, below.size())).toArray(new DataWrapper[0]);
+	}
+
+	/**
+	 * Find the highest node whose prefix starts with the given one
+	 * @param prefix prefix to find
+	 * @return node, or null if no string starts with prefix
+	 */
+	private Node find(String prefix) {
+		Node node = root;
+		int depth = 0;
+
+		while (depth < prefix.length()) {
+			Node child = node.getChild(prefix.charAt(depth));
+			if (child == null) {
+				return null;
+			}
+
+			int common = commonLength(child.label, prefix, depth);
+			if (depth + common == prefix.length()) {
+				// prefix ends on this edge -- everything below child matches
+				return child;
+			}
+			if (common < child.label.length()) {
+				return null;  // prefix leaves the edge
+			}
+
+			depth += common;
+			node = child;
+		}
+
+		return node;
+	}
+
+	/**
+	 * Split an edge so a node sits a number of characters down it
+	 * @param parent node above the edge
+	 * @param child node below the edge
+	 * @param at characters of the edge label above the new node
+	 * @return the new node
+	 */
+	private Node split(Node parent, Node child, int at) {
+		Node middle = new Node(child.label.substring(0, at), cacheSize);
+
+		// everything below the new node is below child, so it starts with child's cache
+		System.arraycopy(child.top, 0, middle.top, 0, child.topSize);
+		middle.topSize = child.topSize;
+
+		child.label = child.label.substring(at);
+		parent.replaceChild(middle);
+		middle.addChild(child);
+		return middle;
+	}
+
+	/**
+	 * Add every string below a node to a list
+	 * @param node root of the subtree
+	 * @param below list to add to
+	 */
+	private void collect(Node node, ArrayList<DataWrapper> below) {
+		if (node.entry != null) {
+			below.add(node.entry);
+		}
+		for (int i = 0; i < node.numberOfChildren; i++) {
+			collect(node.children[i], below);
+		}
+	}
+
+	/**
+	 * Number of leading characters an edge label shares with part of a string
+	 * @param label edge label
+	 * @param s string
+	 * @param from index in s to start at
+	 * @return length of the common part
+	 */
+	private static int commonLength(String label, String s, int from) {
+		int i = 0;
+		while (i < label.length() && from + i < s.length() && label.charAt(i) == s.charAt(from + i)) {
+			i++;
+		}
+		return i;
+	}
+
+	private static class Node {
+		private String label;  // characters on the edge from the parent
+		private char[] firsts;  // first character of each child's label
+		private Node[] children;
+		private int numberOfChildren;
+		private DataWrapper entry;  // string ending at this node, or null
+		private DataWrapper[] top;  // most popular strings below, best first
+		private int topSize;  // how many of top are valid
+
+		/**
+		 * Node constructor
+		 * @param label characters on the edge from the parent
+		 * @param cacheSize strings to cache
+		 */
+		private Node(String label, int cacheSize) {
+			this.label = label;
+			firsts = new char[2];
+			children = new Node[2];
+			numberOfChildren = 0;
+			top = new DataWrapper[cacheSize];
+			topSize = 0;
+		}
+
+		/**
+		 * Get the child whose label starts with a character
+		 * @param c first character
+		 * @return child, or null
+		 */
+		private Node getChild(char c) {
+			for (int i = 0; i < numberOfChildren; i++) {
+				if (firsts[i] == c) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Add a child; no child may start with the same character
+		 * @param child node to add
+		 */
+		private void addChild(Node child) {
+			if (numberOfChildren == children.length) {
+				firsts = Arrays.copyOf(firsts, numberOfChildren * 2);
+				children = Arrays.copyOf(children, numberOfChildren * 2);
+			}
+			firsts[numberOfChildren] = child.label.charAt(0);
+			children[numberOfChildren++] = child;
+		}
+
+		/**
+		 * Put a node in place of the child that starts with the same character
+		 * @param child node to put
+		 */
+		private void replaceChild(Node child) {
+			char c = child.label.charAt(0);
+			for (int i = 0; i < numberOfChildren; i++) {
+				if (firsts[i] == c) {
+					children[i] = child;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Offer a string's new count to the cache
+		 * A cached string moves up; an uncached one comes in if it beats the last
+		 * @param entry string and its new count
+		 */
+		private void offer(DataWrapper entry) {
+			int i = 0;
+			while (i < topSize && !top[i].getData().equals(entry.getData())) {
+				i++;
+			}
+
+			if (i == topSize) {
+				// not cached yet
+				if (topSize < top.length) {
+					topSize++;
+				} else if (entry.compareTo(top[topSize - 1]) <= 0) {
+					return;  // does not make the cut
+				}
+				i = topSize - 1;  // take the last slot
+			}
+
+			// counts only grow, so the entry only moves toward the front
+			while (i > 0 && top[i - 1].compareTo(entry) < 0) {
+				top[i] = top[i - 1];
+				i--;
+			}
+			top[i] = entry;
+		}
+	}
+
+}
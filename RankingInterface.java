@@ -0,0 +1,58 @@
+/**
+ * An interface for the stores that rank entries for StudentLookup
+ * Entries are ordered by their compareTo; the largest entry has rank 0
+ * Works in conjunction with a dictionary, which knows whether an entry is new
+ * and what its count was before an update
+ * @author Zachary Zampa
+ * @since 2019/05/16
+ *
+ * @param <T>
+ */
+public interface RankingInterface<T extends Comparable<? super T>> {
+
+	/**
+	 * Add an entry that is not in the store yet
+	 * @param item entry to add
+	 */
+	public void add(T item);
+
+	/**
+	 * Replace an entry whose count has changed
+	 * @param oldItem entry as it is currently stored
+	 * @param newItem same entry with its new count
+	 */
+	public void updateEntry(T oldItem, T newItem);
+
+	/**
+	 * Get the n'th most max entry
+	 * @param n rank; 0 is the max
+	 * @return entry at rank n
+	 */
+	public T getNMax(int n);
+
+	/**
+	 * Fill an array with the entries at consecutive ranks
+	 * @param from rank of the first entry
+	 * @param range array to fill; its length is the number of ranks, all of which must exist
+	 */
+	public void getNMaxRange(int from, T[] range);
+
+	/**
+	 * Get the rank of an entry; the inverse of getNMax
+	 * @param item entry as it is currently stored
+	 * @return number of larger entries, or -1 if item is not stored
+	 */
+	public int getRank(T item);
+
+	/**
+	 * Replace every entry at once; cheaper than adding them one at a time
+	 * @param items new entries, sorted largest first
+	 */
+	public void rebuild(T[] items);
+
+	/**
+	 * Get the number of entries in the store
+	 * @return size
+	 */
+	public int getSize();
+}
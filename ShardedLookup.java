@@ -0,0 +1,434 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A LookupInterface split across shards that each count on their own thread
+ * Strings are partitioned by hash, so every string belongs to exactly one shard and
+ * each shard is an ordinary StudentLookup touched only by its worker; addString
+ * batches strings per shard and hands full batches over a bounded queue
+ * Queries first wait for every shard to catch up, then combine the shards:
+ * a count is asked of the owning shard, ranks come from a k-way merge of the
+ * shards' sorted heads, and DataWrapper's order keeps the alphabetical tie-break
+ * The merged ranks are kept until the next add, so sweeping the ranks costs
+ * O(log shards) each; one thread is expected to call this, as with StudentLookup
+ * Each shard's table is sized for its share of the expected strings, so memory
+ * does not grow with the number of shards before anything is counted
+ * Optionally a HyperLogLog counts the distinct strings as they are routed, so
+ * estimateEntries is O(1) and does not wait for the shards to catch up; numEntries
+ * stays exact, so every rank below it can be looked up
+ * @author Zachary Zampa
+ * @since 2019/05/25
+ *
+ */
+
+
+public class ShardedLookup implements LookupInterface {
+
+	// Lookup Properties
+	private Shard[] shards;
+	private boolean synced;  // no adds since every shard last caught up
+	private HyperLogLog distinct;  // distinct strings routed so far; null when estimateEntries is exact
+	private static final int BATCH_SIZE = 1024;  // strings handed to a shard at once
+	private static final int QUEUE_BATCHES = 64;  // batches waiting per shard before addString blocks
+	private static final int MERGE_CHUNK = 64;  // ranks fetched from a shard at a time while merging
+	private static final int DEFAULT_CAPACITY = 1000000;  // default distinct strings expected over every shard
+
+	// Merge of the shards' ranks
+	private DataWrapper[] merged;  // ranks merged so far
+	private int numberMerged;  // how many of merged are valid
+	private PriorityQueue<Head> heads;  // next unmerged rank of each shard, best first
+
+
+	/**
+	 * Empty Constructor -- one shard per processor
+	 */
+	public ShardedLookup() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Shard count based Constructor
+	 * @param numberOfShards number of shards and worker threads
+	 */
+	public ShardedLookup(int numberOfShards) {
+		this(numberOfShards, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Shard count and size based Constructor
+	 * @param numberOfShards number of shards and worker threads
+	 * @param capacity number of distinct strings expected over every shard
+	 */
+	public ShardedLookup(int numberOfShards, int capacity) {
+		this(numberOfShards, capacity, 0);
+	}
+
+	/**
+	 * Shard count, size and distinct count based Constructor
+	 * @param numberOfShards number of shards and worker threads
+	 * @param capacity number of distinct strings expected over every shard
+	 * @param precision HyperLogLog precision for estimateEntries, 4 - 18, or 0 to count the shards exactly
+	 */
+	public ShardedLookup(int numberOfShards, int capacity, int precision) {
+		int shardCapacity = (capacity + numberOfShards - 1) / numberOfShards;  // strings split evenly by hash
+		shards = new Shard[numberOfShards];
+		for (int i = 0; i < numberOfShards; i++) {
+			shards[i] = new Shard(i, shardCapacity);
+		}
+
+		synced = true;
+		distinct = precision == 0 ? null : new HyperLogLog(precision);
+		merged = new DataWrapper[MERGE_CHUNK];
+		numberMerged = 0;
+		heads = null;
+	}
+
+	@Override
+	public void addString(int amount, String s) {
+		Shard shard = shardOf(s);
+		shard.pending.add(s, amount);
+
+		if (shard.pending.size == BATCH_SIZE) {
+			shard.submit(null);
+		}
+
+		if (distinct != null) {
+			distinct.offer(s);
+		}
+
+		synced = false;
+	}
+
+	@Override
+	public int lookupCount(String s) {
+		sync();
+		return shardOf(s).lookup.lookupCount(s);
+	}
+
+	/**
+	 * @return string, or null if n is past the last rank
+	 */
+	@Override
+	public String lookupPopularity(int n) {
+		sync();
+
+		if (n < 0 || !mergeTo(n + 1)) {
+			return null;  // rank out of range
+		}
+
+		return merged[n].getData();
+	}
+
+	@Override
+	public DataWrapper[] topK(int k) {
+		return lookupPopularityRange(0, k);
+	}
+
+	@Override
+	public DataWrapper[] lookupPopularityRange(int from, int to) {
+		to = Math.min(to, numEntries());  // a range past the end is cut short
+
+		if (from < 0 || from >= to) {
+			return new DataWrapper[0];
+		}
+
+		mergeTo(to);
+		DataWrapper[] range = new DataWrapper[to - from];
+		System.arraycopy(merged, from, range, 0, range.length);
+		return range;
+	}
+
+	@Override
+	public int lookupRank(String s) {
+		sync();
+		int count = shardOf(s).lookup.lookupCount(s);
+
+		if (count == 0) {
+			return -1;  // never added
+		}
+
+		// the larger entries of every shard rank above it
+		DataWrapper entry = new DataWrapper(s, count);
+		int rank = 0;
+		for (Shard shard : shards) {
+			rank += shard.store.countGreater(entry);
+		}
+		return rank;
+	}
+
+	@Override
+	public DataWrapper[] lookupPrefix(String prefix, int k) {
+		sync();
+
+		// the top k overall are among the top k of each shard
+		ArrayList<DataWrapper> candidates = new ArrayList<>();
+		for (Shard shard : shards) {
+			Collections.addAll(candidates, shard.lookup.lookupPrefix(prefix, k));
+		}
+
+		candidates.sort(Collections.reverseOrder());
+		return candidates.subList(0, Math.max(0, Math.min(k, candidates.size()))).toArray(new DataWrapper[0]);
+	}
+
+	@Override
+	public int numEntries() {
+		sync();
+		int entries = 0;
+		for (Shard shard : shards) {
+			entries += shard.lookup.numEntries();
+		}
+		return entries;
+	}
+
+	/**
+	 * Get the number of distinct strings without waiting for the shards
+	 * With a HyperLogLog this is its estimate, within 1.04 / sqrt(2^precision) of the
+	 * true count; otherwise the shards are waited for and counted, as numEntries does
+	 * @return number of distinct strings, possibly estimated
+	 */
+	public int estimateEntries() {
+		if (distinct != null) {
+			return (int) Math.round(distinct.estimate());
+		}
+
+		return numEntries();
+	}
+
+	/**
+	 * Counts are split by shard and each shard merges its part in bulk
+	 */
+	@Override
+	public void mergeFrom(LookupInterface other) {
+		DataWrapper[] entries = other.topK(Integer.MAX_VALUE);  // numEntries may only be an estimate
+		sync();
+
+		// split the counts by owning shard
+		int[] sizes = new int[shards.length];
+		String[][] keys = new String[shards.length][];
+		int[][] amounts = new int[shards.length][];
+		for (int i = 0; i < shards.length; i++) {
+			keys[i] = new String[entries.length / shards.length + 16];
+			amounts[i] = new int[keys[i].length];
+		}
+		for (DataWrapper entry : entries) {
+			int shard = shardIndex(entry.getData());
+			if (sizes[shard] == keys[shard].length) {
+				keys[shard] = Arrays.copyOf(keys[shard], sizes[shard] * 2);
+				amounts[shard] = Arrays.copyOf(amounts[shard], sizes[shard] * 2);
+			}
+			keys[shard][sizes[shard]] = entry.getData();
+			amounts[shard][sizes[shard]++] = entry.getCount();
+
+			if (distinct != null) {
+				distinct.offer(entry.getData());
+			}
+		}
+
+		// the workers are idle after a sync
+		for (int i = 0; i < shards.length; i++) {
+			shards[i].lookup.mergeCounts(keys[i], amounts[i], sizes[i]);
+		}
+		heads = null;  // the shards changed -- merge again
+	}
+
+	/**
+	 * Stop the worker threads; the lookup must not be used afterwards
+	 */
+	public void close() {
+		sync();
+		for (Shard shard : shards) {
+			shard.worker.interrupt();
+		}
+	}
+
+	/**
+	 * Hand every shard its partial batch and wait until all of them are applied
+	 * Afterwards the shards are idle, so their state can be read from this thread
+	 */
+	private void sync() {
+		if (synced) {
+			return;
+		}
+
+		CountDownLatch done = new CountDownLatch(shards.length);
+		for (Shard shard : shards) {
+			shard.submit(done);
+		}
+
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			System.out.println("ERROR: Interrupted while waiting for the shards");
+			System.exit(1);  // exit with error code
+		}
+
+		synced = true;
+		heads = null;  // the shards changed -- merge again
+	}
+
+	/**
+	 * Merge the shards' ranks until a number of them are known
+	 * @param to number of ranks wanted
+	 * @return true if there are that many
+	 */
+	private boolean mergeTo(int to) {
+		if (heads == null) {
+			// start over from every shard's top rank
+			numberMerged = 0;
+			heads = new PriorityQueue<>();
+			for (Shard shard : shards) {
+				Head head = new Head(shard);
+				if (head.fetch()) {
+					heads.add(head);
+				}
+			}
+		}
+
+		while (numberMerged < to && !heads.isEmpty()) {
+			Head head = heads.poll();
+			if (numberMerged == merged.length) {
+				merged = Arrays.copyOf(merged, merged.length * 2);
+			}
+			merged[numberMerged++] = head.chunk[head.position++];
+
+			if (head.position < head.chunk.length || head.fetch()) {
+				heads.add(head);  // the shard has more ranks
+			}
+		}
+
+		return numberMerged >= to;
+	}
+
+	/**
+	 * Get the shard a string belongs to
+	 * @param s string
+	 * @return owning shard
+	 */
+	private Shard shardOf(String s) {
+		return shards[shardIndex(s)];
+	}
+
+	/**
+	 * Get the index of the shard a string belongs to
+	 * @param s string
+	 * @return index in shards
+	 */
+	private int shardIndex(String s) {
+		int hash = s.hashCode() * 0x9E3779B9;  // spread, so similar strings split up
+		return (int) (((hash >>> 1) * (long) shards.length) >>> 31);
+	}
+
+	private static class Shard {
+		private StudentLookup lookup;  // this shard's strings; only touched by worker between syncs
+		private OrderStatisticTree<DataWrapper> store;  // lookup's ranking store
+		private ArrayBlockingQueue<Batch> queue;  // batches waiting for worker
+		private Batch pending;  // batch being filled by addString
+		private Thread worker;
+
+		/**
+		 * Shard constructor -- starts its worker
+		 * @param number shard number, for the thread name
+		 * @param capacity number of distinct strings expected in this shard
+		 */
+		private Shard(int number, int capacity) {
+			store = new OrderStatisticTree<>();
+			lookup = new StudentLookup(store, capacity);
+			queue = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+			pending = new Batch();
+
+			worker = new Thread(this::work, "lookup-shard-" + number);
+			worker.setDaemon(true);  // a lookup that is never closed does not keep the program alive
+			worker.start();
+		}
+
+		/**
+		 * Queue the pending batch and start a new one
+		 * @param done latch to count down once the batch is applied, or null
+		 */
+		private void submit(CountDownLatch done) {
+			pending.done = done;
+
+			try {
+				queue.put(pending);  // blocks while the worker is far behind
+			} catch (InterruptedException e) {
+				System.out.println("ERROR: Interrupted while queueing a batch");
+				System.exit(1);  // exit with error code
+			}
+
+			pending = new Batch();
+		}
+
+		/**
+		 * Worker loop -- apply batches until interrupted
+		 */
+		private void work() {
+			try {
+				while (true) {
+					Batch batch = queue.take();
+					for (int i = 0; i < batch.size; i++) {
+						lookup.addString(batch.amounts[i], batch.strings[i]);
+					}
+					if (batch.done != null) {
+						batch.done.countDown();
+					}
+				}
+			} catch (InterruptedException e) {
+				// closed
+			}
+		}
+	}
+
+	private static class Batch {
+		private String[] strings = new String[BATCH_SIZE];
+		private int[] amounts = new int[BATCH_SIZE];
+		private int size;  // how many of strings are valid
+		private CountDownLatch done;  // counted down once applied, or null
+
+		/**
+		 * Add a string to the batch
+		 * @param s string
+		 * @param amount amount to add to it
+		 */
+		private void add(String s, int amount) {
+			strings[size] = s;
+			amounts[size++] = amount;
+		}
+	}
+
+	private static class Head implements Comparable<Head> {
+		private Shard shard;
+		private DataWrapper[] chunk;  // ranks fetched from the shard
+		private int position;  // next unmerged entry of chunk
+		private int nextRank;  // shard rank of the entry after chunk
+
+		/**
+		 * Head constructor
+		 * @param shard shard to merge from
+		 */
+		private Head(Shard shard) {
+			this.shard = shard;
+			nextRank = 0;
+		}
+
+		/**
+		 * Fetch the shard's next ranks
+		 * @return false if the shard has none left
+		 */
+		private boolean fetch() {
+			chunk = shard.lookup.lookupPopularityRange(nextRank, nextRank + MERGE_CHUNK);
+			position = 0;
+			nextRank += chunk.length;
+			return chunk.length > 0;
+		}
+
+		@Override
+		public int compareTo(Head other) {
+			return other.chunk[other.position].compareTo(chunk[position]);  // largest entry first
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+import java.util.Arrays;
+
+/**
+ * A Space-Saving stream summary: the heavy hitters of a stream in fixed memory
+ * At most capacity strings are monitored; a string that is not monitored when the
+ * summary is full takes over the smallest counter, inheriting its count as error
+ * Every string whose true count is over total / capacity is monitored, a monitored
+ * count is never below the true count, and it is at most its error above it
+ * Counters are kept ranked in an order statistic tree, so adds and rank queries are O(log capacity)
+ * @author Zachary Zampa
+ * @since 2019/05/23
+ *
+ */
+
+
+public class SpaceSaving {
+
+	// Summary Properties
+	private Dictionary<String, Counter> monitored;  // monitored string to its counter
+	private OrderStatisticTree<DataWrapper> ranked;  // counters by count
+	private int capacity;  // most strings monitored at once
+
+
+	/**
+	 * Capacity based Constructor
+	 * @param capacity number of strings to monitor
+	 */
+	public SpaceSaving(int capacity) {
+		this.capacity = capacity;
+		monitored = new Dictionary<>(capacity, false, true);
+		ranked = new OrderStatisticTree<>();
+	}
+
+	/**
+	 * Add amount to the count of a string
+	 * @param s string to increase
+	 * @param amount amount to add; must not be negative
+	 */
+	public void offer(String s, int amount) {
+		Counter counter = monitored.getValue(s);
+
+		if (counter != null) {
+			// monitored -- bump its counter
+			ranked.remove(counter.entry);  // its key in the tree is about to change
+			counter.entry.setCount(counter.entry.getCount() + amount);
+		} else if (monitored.getSize() < capacity) {
+			// room left -- start counting exactly
+			counter = new Counter(new DataWrapper(s, amount), 0);
+			monitored.add(s, counter);
+		} else {
+			// full -- take over the smallest counter
+			DataWrapper min = ranked.getNMax(ranked.getSize() - 1);
+			ranked.remove(min);
+			monitored.remove(min.getData());
+
+			counter = new Counter(new DataWrapper(s, min.getCount() + amount), min.getCount());
+			monitored.add(s, counter);
+		}
+
+		ranked.add(counter.entry);
+	}
+
+	/**
+	 * Add another summary's counters to this one, as mergeable summaries do
+	 * A string monitored on only one side may have been seen on the other up to that
+	 * side's smallest counter, so that is added to its count and its error; the
+	 * largest capacity counters are then kept, and no count falls below the true count
+	 * @param other summary to add
+	 */
+	public void merge(SpaceSaving other) {
+		// read both sides before changing anything, in case other is this
+		int ownFloor = floor();
+		int otherFloor = other.floor();
+		DataWrapper[] own = new DataWrapper[getSize()];
+		getNMaxRange(0, own);
+		DataWrapper[] theirs = new DataWrapper[other.getSize()];
+		other.getNMaxRange(0, theirs);
+
+		Counter[] merged = new Counter[own.length + theirs.length];
+		int size = 0;
+		for (DataWrapper entry : own) {
+			Counter counter = other.monitored.getValue(entry.getData());
+			int count = counter == null ? otherFloor : counter.entry.getCount();
+			int error = counter == null ? otherFloor : counter.error;
+			merged[size++] = new Counter(new DataWrapper(entry.getData(), entry.getCount() + count),
+					getError(entry.getData()) + error);
+		}
+		for (DataWrapper entry : theirs) {
+			if (monitored.getValue(entry.getData()) == null) {
+				// only monitored there
+				merged[size++] = new Counter(new DataWrapper(entry.getData(), entry.getCount() + ownFloor),
+						other.getError(entry.getData()) + ownFloor);
+			}
+		}
+
+		// keep the largest counters
+		Arrays.sort(merged, 0, size, (a, b) -> b.entry.compareTo(a.entry));
+		size = Math.min(size, capacity);
+		DataWrapper[] kept = new DataWrapper[size];
+		monitored = new Dictionary<>(capacity, false, true);
+		for (int i = 0; i < size; i++) {
+			kept[i] = merged[i].entry;
+			monitored.add(kept[i].getData(), merged[i]);
+		}
+		ranked.rebuild(kept);
+	}
+
+	/**
+	 * Get the most an unmonitored string may have been counted
+	 * Nothing is dropped until the summary is full; after that the smallest counter bounds it
+	 * @return smallest count when full, otherwise 0
+	 */
+	private int floor() {
+		if (monitored.getSize() < capacity) {
+			return 0;
+		}
+
+		return ranked.getNMax(ranked.getSize() - 1).getCount();
+	}
+
+	/**
+	 * Get the count of a monitored string
+	 * @param s string to look for
+	 * @return count, at most getError(s) above the true count; 0 if not monitored
+	 */
+	public int getCount(String s) {
+		Counter counter = monitored.getValue(s);
+		return counter == null ? 0 : counter.entry.getCount();
+	}
+
+	/**
+	 * Get how far the count of a monitored string may be above its true count
+	 * @param s string to look for
+	 * @return error; 0 if not monitored
+	 */
+	public int getError(String s) {
+		Counter counter = monitored.getValue(s);
+		return counter == null ? 0 : counter.error;
+	}
+
+	/**
+	 * Get the monitored string with the n'th largest count
+	 * @param n rank
+	 * @return string and its count, or null past the monitored strings
+	 */
+	public DataWrapper getNMax(int n) {
+		return ranked.getNMax(n);
+	}
+
+	/**
+	 * Fill an array with the monitored strings at consecutive ranks
+	 * @param from rank of the first entry
+	 * @param range array to fill; every rank must be monitored
+	 */
+	public void getNMaxRange(int from, DataWrapper[] range) {
+		ranked.getNMaxRange(from, range);
+	}
+
+	/**
+	 * Get the rank of a monitored string
+	 * @param s string to look for
+	 * @return number of monitored strings ranked above it, or -1 if not monitored
+	 */
+	public int getRank(String s) {
+		Counter counter = monitored.getValue(s);
+		return counter == null ? -1 : ranked.getRank(counter.entry);
+	}
+
+	/**
+	 * Get the number of monitored strings
+	 * @return size
+	 */
+	public int getSize() {
+		return monitored.getSize();
+	}
+
+	private static class Counter {
+		private DataWrapper entry;  // string and its count, as stored in ranked
+		private int error;  // count inherited when it took over the counter
+
+		/**
+		 * Counter constructor
+		 * @param entry string and its count
+		 * @param error count inherited
+		 */
+		private Counter(DataWrapper entry, int error) {
+			this.entry = entry;
+			this.error = error;
+		}
+	}
+
+}
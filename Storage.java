@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 /**
  * Array based storage
  * @author Zachary Zampa
@@ -17,7 +19,9 @@ public class Storage<T extends Comparable<? super T>> {
 	private static final int DEFAULT_CAPACITY = 100000;  // default capacity
 	private static final int MAX_CAPACITY = 10000000;  // max capacity = 10^7
 	private int sortTracker;   // number of additions since last sort
-	private boolean everSort;  // ensure it is sorted at least once
+	private int sortedEnd;   // entries before this index are in sorted order; later ones were added since the last sort
+	private Dictionary<T, Position> index;  // item to its position in storage
+	private Position[] positions;  // positions[i] belongs to storage[i]
 	private static final double SORT_RATIO = 0.3;  // how much must be sorted to use insertion sort -- 90% sorted
 	private static final double LOAD_RATIO = 0.9;  // how full the array can be before it must be resized -- 90% full
 
@@ -43,9 +47,11 @@ public class Storage<T extends Comparable<? super T>> {
 		@SuppressWarnings("unchecked")
 		T[] tmp = (T[]) new Comparable[size];
 		storage = tmp;
+		positions = new Position[size];
+		index = new Dictionary<>(size, false, true);
 
 		sortTracker = 0;
-		everSort = false;
+		sortedEnd = 0;
 	}
 
 	/**
@@ -67,6 +73,8 @@ public class Storage<T extends Comparable<? super T>> {
 	 */
 	public void add(T item) {
 		storage[numberOfEntries] = item;  // add to next unused index in storage
+		positions[numberOfEntries] = new Position(numberOfEntries);
+		index.add(item, positions[numberOfEntries]);
 		numberOfEntries++;
 		sortTracker++;
 		loadCheck();
@@ -89,71 +97,100 @@ public class Storage<T extends Comparable<? super T>> {
 	 * The size is doubled
 	 */
 	private void enlargeStorage() {
-		T[] oldStore = storage;
-		int oldSize = storage.length;
-		int oldNum = numberOfEntries;
-		int newSize = oldSize * 2;
+		int newSize = storage.length * 2;
 		capacityCheck(newSize);  // ensure still within limits
 
-		@SuppressWarnings("unchecked")
-		T[] tmp = (T[]) new Comparable[newSize];
-		storage = tmp;
-		numberOfEntries = 0; // Reset to 0; since re-adding will increase this to correct number
-
-		// Re-add all positions
-		for (int i = 0; i < oldNum; i++) {
-			add(oldStore[i]);	
-		} 
+		// positions stay the same, so the arrays are copied rather than re-added
+		storage = Arrays.copyOf(storage, newSize);
+		positions = Arrays.copyOf(positions, newSize);
 	}
 
 	/** 
-	 * Works in conjunction with dictionary to check if item already exists in storage
+	 * Works in conjunction with dictionary; the item must already be in storage
+	 * Finds the item's slot through the index, then moves it only as far as its new count requires
 	 * @param item
 	 */
 	public void updateEntry(T item) {
-		// check if array is sorted
-		if (sortTracker == 0) {
-			// sorted -- binary search
-			binarySearch(item);
-
-		} else {
-			// not sorted -- linear search
-			linearSearch(item);
+		int slot = index.getValue(item).index;
+		storage[slot] = item;
+
+		if (slot < sortedEnd) {
+			// in the sorted part -- keep it sorted
+			moveInSorted(slot);
 		}
 
 		sortTracker++;
 	}
 
-
-	private void linearSearch(T item) {
-		for (int i = 0; i < numberOfEntries; i++) {
-			if (storage[i].equals(item)) {
-				storage[i] = item;  // add to next unused index in storage
-				break;
+	/**
+	 * Move an updated entry within the sorted part of the array to where it now belongs
+	 * Only the entries it passes are shifted
+	 * @param slot current index of the entry
+	 */
+	private void moveInSorted(int slot) {
+		T item = storage[slot];
+		Position position = positions[slot];
+		int target = slot;
+
+		if (slot > 0 && storage[slot - 1].compareTo(item) < 0) {
+			// grew past its neighbour -- find the first smaller entry before it
+			int lower = 0;
+			int upper = slot - 1;
+			while (lower < upper) {
+				int mid = (lower + upper) >>> 1;
+				if (storage[mid].compareTo(item) < 0) {
+					upper = mid;
+				} else {
+					lower = mid + 1;
+				}
+			}
+			target = lower;
+
+			// shift the passed entries back one
+			System.arraycopy(storage, target, storage, target + 1, slot - target);
+			System.arraycopy(positions, target, positions, target + 1, slot - target);
+		} else if (slot + 1 < sortedEnd && storage[slot + 1].compareTo(item) > 0) {
+			// shrank below its neighbour -- find the last larger entry after it
+			int lower = slot + 1;
+			int upper = sortedEnd - 1;
+			while (lower < upper) {
+				int mid = (lower + upper + 1) >>> 1;
+				if (storage[mid].compareTo(item) > 0) {
+					lower = mid;
+				} else {
+					upper = mid - 1;
+				}
 			}
+			target = lower;
+
+			// shift the passed entries forward one
+			System.arraycopy(storage, slot + 1, storage, slot, target - slot);
+			System.arraycopy(positions, slot + 1, positions, slot, target - slot);
 		}
 
+		storage[target] = item;
+		positions[target] = position;
+		renumber(Math.min(slot, target), Math.max(slot, target));
 	}
 
-	private void binarySearch(T item) {
-		int lower = 0;
-		int upper = numberOfEntries - 1; 
-		while (lower <= upper) { 
-			int mid = (lower + upper) / 2; 
-
-			int comp = storage[mid].compareTo(item);
-			// Check if the item is at mid
-			if (comp == 0) {
-				storage[mid] = item; 
-			}
+	/**
+	 * Bring the positions of a range of slots up to date
+	 * @param from first slot
+	 * @param to last slot
+	 */
+	private void renumber(int from, int to) {
+		for (int i = from; i <= to; i++) {
+			positions[i].index = i;
+		}
+	}
 
-			// If item is greater, ignore left half
-			if (comp < 0) {
-				lower = mid + 1; 
-			} else {
-				// Item is smaller, ignore right half 
-				upper = mid - 1; 
-			}
+	/**
+	 * Rebuild every position after the array has been sorted
+	 */
+	private void reindex() {
+		for (int i = 0; i < numberOfEntries; i++) {
+			positions[i] = index.getValue(storage[i]);
+			positions[i].index = i;
 		}
 	}
 
@@ -163,32 +200,24 @@ public class Storage<T extends Comparable<? super T>> {
 	 * @return item
 	 */
 	public T getNMax(int n) {
-		// check if sorted
-		if (everSort) {
-			if (sortTracker == 0) {
-				// sorted -- pull value
-				return storage[n];
+		// check if entries were added since the last sort
+		if (sortedEnd < numberOfEntries) {
+			// see which sort to do
+			if ((sortTracker / numberOfEntries) < SORT_RATIO) {
+				// this is sorted enough -- use insertion sort
+				insertionSort();
+			} else {
+				// this is too messy -- use heap sort
+				heapSort();
+//				quickSort(0, numberOfEntries - 1);
 			}
-		}
-
-
-		// else not sorted -- see which sort to do
-		if ((sortTracker / numberOfEntries) < SORT_RATIO) {
-			// this is sorted enough -- use insertion sort
-			insertionSort();
-			everSort = true;
-			sortTracker = 0;
-		} else {
-			// this is too messy -- use heap sort
-			heapSort();
-//			quickSort(0, numberOfEntries - 1);
-			everSort = true;
+			reindex();
+			sortedEnd = numberOfEntries;
 			sortTracker = 0;
 		}
 
+		// sorted -- pull value
 		return storage[n];
-
-
 	}
 
 	/**
@@ -308,4 +337,16 @@ public class Storage<T extends Comparable<? super T>> {
 //
 //	}
 
+	private static class Position {
+		private int index;  // slot in storage
+
+		/**
+		 * Position constructor
+		 * @param index slot in storage
+		 */
+		private Position(int index) {
+			this.index = index;
+		}
+	}
+
 }
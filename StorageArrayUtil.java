@@ -1,5 +1,6 @@
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.PriorityQueue;
 
 /**
  * Array based storage
@@ -9,20 +10,25 @@ import java.util.Collections;
  * @param <T>
  */
 
-// TODO try collections sort or Quicksort rather than heap and insertion
 
-
-public class StorageArrayUtil<T extends Comparable<? super T>> {
+public class StorageArrayUtil<T extends Comparable<? super T>> implements RankingInterface<T> {
 
 	// Storage Properties
 	private T[] storage;
 	private int numberOfEntries;  // number of entries
 	private static final int DEFAULT_CAPACITY = 100000;  // default capacity
 	private static final int MAX_CAPACITY = 10000000;  // max capacity = 10^7
-	private int sortTracker;   // number of additions since last sort
-	private boolean everSort;  // ensure it is sorted at least once
-	private static final double SORT_RATIO = 0.3;  // how much must be sorted to use insertion sort -- 90% sorted
+	private int sortedEnd;   // entries before this index are in sorted order; later ones were added since the last sort
+	private Dictionary<T, Position> index;  // item to its position in storage
+	private Position[] positions;  // positions[i] belongs to storage[i]
 	private static final double LOAD_RATIO = 0.9;  // how full the array can be before it must be resized -- 90% full
+	private static final int HEAP_RANKS = 64;  // ranks below this are answered from a bounded heap when unsorted
+	private static final int MAX_FALLBACKS = 4;  // queries answered without merging before a merge is forced
+	private static final double MAX_TAIL_RATIO = 0.25;  // share of entries that may sit unsorted before a merge is forced
+	private int lastRank;  // rank asked for by the previous query
+	private int queriesSinceAdd;  // queries answered since the last addition
+	private int fallbacks;  // queries answered by heap or selection since the last merge
+	private T[] selectBuffer;  // scratch copy for selection, so storage keeps its order
 
 
 
@@ -46,9 +52,13 @@ public class StorageArrayUtil<T extends Comparable<? super T>> {
 		@SuppressWarnings("unchecked")
 		T[] tmp = (T[]) new Comparable[size];
 		storage = tmp;
+		positions = new Position[size];
+		index = new Dictionary<>(size, false, true);
 
-		sortTracker = 0;
-		everSort = false;
+		sortedEnd = 0;
+		lastRank = -2;
+		queriesSinceAdd = 0;
+		fallbacks = 0;
 	}
 
 	/**
@@ -68,10 +78,13 @@ public class StorageArrayUtil<T extends Comparable<? super T>> {
 	 * Works in conjunction with dictionary to check if item already exists in storage
 	 * @param item
 	 */
+	@Override
 	public void add(T item) {
 		storage[numberOfEntries] = item;  // add to next unused index in storage
+		positions[numberOfEntries] = new Position(numberOfEntries);
+		index.add(item, positions[numberOfEntries]);
 		numberOfEntries++;
-		sortTracker++;
+		queriesSinceAdd = 0;
 		loadCheck();
 	}
 
@@ -92,72 +105,126 @@ public class StorageArrayUtil<T extends Comparable<? super T>> {
 	 * The size is doubled
 	 */
 	private void enlargeStorage() {
-		T[] oldStore = storage;
-		int oldSize = storage.length;
-		int oldNum = numberOfEntries;
-		int newSize = oldSize * 2;
+		int newSize = storage.length * 2;
 		capacityCheck(newSize);  // ensure still within limits
 
-		@SuppressWarnings("unchecked")
-		T[] tmp = (T[]) new Comparable[newSize];
-		storage = tmp;
-		numberOfEntries = 0; // Reset to 0; since re-adding will increase this to correct number
+		// positions stay the same, so the arrays are copied rather than re-added
+		storage = Arrays.copyOf(storage, newSize);
+		positions = Arrays.copyOf(positions, newSize);
+	}
 
-		// Re-add all positions
-		for (int i = 0; i < oldNum; i++) {
-			add(oldStore[i]);	
-		} 
+	@Override
+	public void updateEntry(T oldItem, T newItem) {
+		updateEntry(newItem);  // found by equals; the old count is not needed
 	}
 
 	/** 
-	 * Works in conjunction with dictionary to check if item already exists in storage
+	 * Works in conjunction with dictionary; the item must already be in storage
+	 * Finds the item's slot through the index, then moves it only as far as its new count requires
 	 * @param item
 	 */
 	public void updateEntry(T item) {
-		// check if array is sorted
-		if (sortTracker == 0) {
-			// sorted -- binary search
-			binarySearch(item);
+		int slot = index.getValue(item).index;
+		storage[slot] = item;
 
-		} else {
-			// not sorted -- linear search
-			linearSearch(item);
+		if (slot < sortedEnd) {
+			// in the sorted part -- keep it sorted
+			moveInSorted(slot);
 		}
-
-		sortTracker++;
 	}
 
-
-	private void linearSearch(T item) {
-		for (int i = 0; i < numberOfEntries; i++) {
-			if (storage[i].equals(item)) {
-				storage[i] = item;  // add to next unused index in storage
-				break;
+	/**
+	 * Move an updated entry within the sorted part of the array to where it now belongs
+	 * Only the entries it passes are shifted
+	 * @param slot current index of the entry
+	 */
+	private void moveInSorted(int slot) {
+		T item = storage[slot];
+		Position position = positions[slot];
+		int target = slot;
+
+		if (slot > 0 && storage[slot - 1].compareTo(item) < 0) {
+			// grew past its neighbour -- find the first smaller entry before it
+			int lower = 0;
+			int upper = slot - 1;
+			while (lower < upper) {
+				int mid = (lower + upper) >>> 1;
+				if (storage[mid].compareTo(item) < 0) {
+					upper = mid;
+				} else {
+					lower = mid + 1;
+				}
+			}
+			target = lower;
+
+			// shift the passed entries back one
+			System.arraycopy(storage, target, storage, target + 1, slot - target);
+			System.arraycopy(positions, target, positions, target + 1, slot - target);
+		} else if (slot + 1 < sortedEnd && storage[slot + 1].compareTo(item) > 0) {
+			// shrank below its neighbour -- find the last larger entry after it
+			int lower = slot + 1;
+			int upper = sortedEnd - 1;
+			while (lower < upper) {
+				int mid = (lower + upper + 1) >>> 1;
+				if (storage[mid].compareTo(item) > 0) {
+					lower = mid;
+				} else {
+					upper = mid - 1;
+				}
 			}
+			target = lower;
+
+			// shift the passed entries forward one
+			System.arraycopy(storage, slot + 1, storage, slot, target - slot);
+			System.arraycopy(positions, slot + 1, positions, slot, target - slot);
 		}
 
+		storage[target] = item;
+		positions[target] = position;
+		renumber(Math.min(slot, target), Math.max(slot, target));
 	}
 
-	private void binarySearch(T item) {
-		int lower = 0;
-		int upper = numberOfEntries - 1; 
-		while (lower <= upper) { 
-			int mid = (lower + upper) / 2; 
-
-			int comp = storage[mid].compareTo(item);
-			// Check if the item is at mid
-			if (comp == 0) {
-				storage[mid] = item; 
-			}
+	/**
+	 * Bring the positions of a range of slots up to date
+	 * @param from first slot
+	 * @param to last slot
+	 */
+	private void renumber(int from, int to) {
+		for (int i = from; i <= to; i++) {
+			positions[i].index = i;
+		}
+	}
 
-			// If item is greater, ignore left half
-			if (comp < 0) {
-				lower = mid + 1; 
+	/**
+	 * Sort only the entries added since the last sort and merge them into the sorted part
+	 * Updates to the sorted part were already kept in order, so the added entries are
+	 * the only unsorted ones; costs O(n + k log k) for k added entries
+	 */
+	private void mergeAdded() {
+		int added = numberOfEntries - sortedEnd;
+		T[] tail = Arrays.copyOfRange(storage, sortedEnd, numberOfEntries);
+		Arrays.sort(tail, Collections.reverseOrder());
+
+		// merge from the back so the sorted part can be merged in place
+		int i = sortedEnd - 1;  // last entry of the sorted part
+		int j = added - 1;  // last entry of the sorted tail
+		for (int k = numberOfEntries - 1; j >= 0; k--) {
+			if (i >= 0 && storage[i].compareTo(tail[j]) < 0) {
+				// sorted part entry is smaller -- it goes last
+				storage[k] = storage[i];
+				positions[k] = positions[i];
+				i--;
 			} else {
-				// Item is smaller, ignore right half 
-				upper = mid - 1; 
+				storage[k] = tail[j];
+				positions[k] = index.getValue(tail[j]);
+				j--;
 			}
+			positions[k].index = k;
 		}
+		// once the tail is used up the rest of the sorted part is already in place
+
+		sortedEnd = numberOfEntries;
+		fallbacks = 0;
 	}
 
 	/**
@@ -165,139 +232,262 @@ public class StorageArrayUtil<T extends Comparable<? super T>> {
 	 * @param n rank
 	 * @return item
 	 */
+	@Override
 	public T getNMax(int n) {
-		// check if sorted
-		if (everSort) {
-			if (sortTracker == 0) {
-				// sorted -- pull value
-				return storage[n];
+		boolean sweeping = n == lastRank + 1 || queriesSinceAdd > 0;  // ranks in order, or repeat queries
+		lastRank = n;
+		queriesSinceAdd++;
+
+		// check if entries were added since the last sort -- plan how to answer
+		if (sortedEnd < numberOfEntries) {
+			int added = numberOfEntries - sortedEnd;
+			boolean cheapMerge = (long) added * (32 - Integer.numberOfLeadingZeros(added)) <= numberOfEntries;
+			boolean overdue = fallbacks >= MAX_FALLBACKS || added > MAX_TAIL_RATIO * numberOfEntries;
+
+			if (sweeping || cheapMerge || overdue) {
+				// the sorted order will be reused, costs no more than a linear pass,
+				// or has been put off for long enough that the fallbacks cost more -- merge
+				mergeAdded();
+			} else if (n < HEAP_RANKS) {
+				// shallow rank -- only the top few added entries matter
+				fallbacks++;
+				return topFromHeap(n);
+			} else {
+				// isolated deep rank -- select without sorting
+				fallbacks++;
+				return select(n);
 			}
 		}
 
-
-		// else not sorted -- see which sort to do
-		Arrays.sort(storage, 0, numberOfEntries, Collections.reverseOrder()); 
-
+		// sorted -- pull value
 		return storage[n];
-
-
 	}
 
 	/**
-	 * Sort the array by treating it as a heap -- this sorts quickly; good on randomly ordered data
-	 * Sorts in descending order
+	 * Answer a shallow rank without sorting
+	 * Keeps the n + 1 largest added entries in a bounded heap, then walks them
+	 * alongside the sorted part; costs O(k log n) for k added entries
+	 * @param n rank
+	 * @return item
 	 */
-	private void heapSort() {
-		// create the first heap
-		for (int rootIndex = numberOfEntries / 2 - 1; rootIndex >= 0; rootIndex--) {
-			reheap(storage, rootIndex, numberOfEntries - 1);
+	private T topFromHeap(int n) {
+		PriorityQueue<T> heap = new PriorityQueue<>(n + 1);  // smallest candidate on top
+
+		for (int i = sortedEnd; i < numberOfEntries; i++) {
+			if (heap.size() <= n) {
+				heap.add(storage[i]);
+			} else if (storage[i].compareTo(heap.peek()) > 0) {
+				// larger than the smallest candidate -- replace it
+				heap.poll();
+				heap.add(storage[i]);
+			}
 		}
 
-		swap(0, numberOfEntries - 1);  // swap the root node with the last node
+		// candidates from largest to smallest
+		@SuppressWarnings("unchecked")
+		T[] candidates = (T[]) new Comparable<?>[heap.size()];
+		for (int i = candidates.length - 1; i >= 0; i--) {
+			candidates[i] = heap.poll();
+		}
 
-		// start operations on reduced heap
-		for (int lastIndex = numberOfEntries - 2; lastIndex > 0; lastIndex--) {
-			reheap(storage, 0, lastIndex);
-			swap(0, lastIndex);
+		// walk both sorted lists; the n'th entry taken is the answer
+		int i = 0;
+		int j = 0;
+		T result = null;
+		for (int taken = 0; taken <= n; taken++) {
+			if (j >= candidates.length || (i < sortedEnd && storage[i].compareTo(candidates[j]) > 0)) {
+				result = storage[i++];
+			} else {
+				result = candidates[j++];
+			}
 		}
 
+		return result;
 	}
 
-
 	/**
-	 * Transform a semi-heap into a max heap
-	 * @param rootIndex index the root is in
-	 * @param lastIndex index at end
+	 * Answer a rank with introselect on a scratch copy; expected O(n) and storage keeps its order
+	 * Quickselect with a median of three pivot, falling back to sorting the remaining
+	 * range if partitioning goes badly for too long
+	 * @param n rank
+	 * @return item
 	 */
-	private void reheap(T[] heap, int rootIndex, int lastIndex) {
-		boolean finished = false;
-		int leftCIndex = 2 * rootIndex + 1;  
-		T lost = heap[rootIndex];
-		
-
-		while (!finished && leftCIndex <= lastIndex) {
-			int largeCIndex = leftCIndex; // assume it is larger
-			int rightCIndex = leftCIndex + 1; // right child is next to left
-
-			if (rightCIndex <= lastIndex && heap[rightCIndex].compareTo(heap[largeCIndex]) < 0) {
-				largeCIndex = rightCIndex;
+	private T select(int n) {
+		if (selectBuffer == null || selectBuffer.length < numberOfEntries) {
+			selectBuffer = Arrays.copyOf(storage, storage.length);
+		} else {
+			System.arraycopy(storage, 0, selectBuffer, 0, numberOfEntries);
+		}
+
+		T[] a = selectBuffer;
+		int lower = 0;
+		int upper = numberOfEntries - 1;
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(numberOfEntries));  // about 2 log n partitions
+
+		while (lower < upper) {
+			if (depth-- == 0) {
+				// partitions are not shrinking -- finish with a sort
+				Arrays.sort(a, lower, upper + 1, Collections.reverseOrder());
+				break;
+			}
+
+			// median of three pivot
+			int mid = (lower + upper) >>> 1;
+			T pivot = medianOfThree(a[lower], a[mid], a[upper]);
+
+			// partition in descending order
+			int i = lower;
+			int j = upper;
+			while (i <= j) {
+				while (a[i].compareTo(pivot) > 0) {
+					i++;
+				}
+				while (a[j].compareTo(pivot) < 0) {
+					j--;
+				}
+				if (i <= j) {
+					T tmp = a[i];
+					a[i++] = a[j];
+					a[j--] = tmp;
+				}
 			}
 
-			if (lost.compareTo(heap[largeCIndex]) > 0) {
-				// lost node is greater than node in largeCIndex
-				heap[rootIndex] = heap[largeCIndex]; // set this into the root index
-				rootIndex = largeCIndex;   // tick down to next index
-				leftCIndex = 2 * rootIndex + 1; 
+			// keep only the side holding rank n
+			if (n <= j) {
+				upper = j;
+			} else if (n >= i) {
+				lower = i;
 			} else {
-				// none are larger here, stop
-				finished = true;
+				break;  // rank n is the pivot
 			}
 		}
 
-		heap[rootIndex] = lost;	
+		T result = a[n];
+		Arrays.fill(a, 0, numberOfEntries, null);  // do not hold on to entries
+		return result;
 	}
 
-
 	/**
-	 * Sorts an array with the insertion algorithm -- good on semi-sorted data
+	 * Middle value of three
+	 * @param x first value
+	 * @param y second value
+	 * @param z third value
+	 * @return median
 	 */
-	private void insertionSort() {
-		int j;
-		T next;
-		for(int i = 0; i < numberOfEntries; i++) {
-			next = storage[i];
-			j = i;
-			while(j > 0 && storage[j - 1].compareTo(next) < 0) {
-				storage[j] = storage[--j];
+	private T medianOfThree(T x, T y, T z) {
+		if (x.compareTo(y) < 0) {
+			if (y.compareTo(z) < 0) {
+				return y;
 			}
-			storage[j] = next;
+			return x.compareTo(z) < 0 ? z : x;
+		}
+		if (x.compareTo(z) < 0) {
+			return x;
 		}
+		return y.compareTo(z) < 0 ? z : y;
+	}
+
+	@Override
+	public void getNMaxRange(int from, T[] range) {
+		if (sortedEnd < numberOfEntries) {
+			// a range is worth a merge -- the slice is then a plain copy
+			mergeAdded();
+		}
+
+		System.arraycopy(storage, from, range, 0, range.length);
 	}
 
 	/**
-	 * Swap two items in an array
-	 * @param p1 position 1
-	 * @param p2 position 2
+	 * Get the rank of an entry without sorting
+	 * The sorted part gives the larger entries there by position or binary search;
+	 * only the entries added since the last sort are scanned, so it costs O(log n + k)
+	 * for k added entries and O(1) once sorted
+	 * @param item entry as it is currently stored
+	 * @return number of larger entries, or -1 if item is not stored
 	 */
-	private void swap(int p1, int p2) {
-		T tmp = storage[p1];
-		storage[p1] = storage[p2];
-		storage[p2] = tmp;
+	@Override
+	public int getRank(T item) {
+		Position position = index.getValue(item);
+
+		if (position == null) {
+			return -1;  // not in storage
+		}
+
+		int rank;
+		if (position.index < sortedEnd) {
+			// everything before it in the sorted part is larger
+			rank = position.index;
+		} else {
+			// count the larger entries of the sorted part -- find the first smaller one
+			int lower = 0;
+			int upper = sortedEnd;
+			while (lower < upper) {
+				int mid = (lower + upper) >>> 1;
+				if (storage[mid].compareTo(item) > 0) {
+					lower = mid + 1;
+				} else {
+					upper = mid;
+				}
+			}
+			rank = lower;
+		}
+
+		// the added entries are in no order -- count the larger ones
+		for (int i = sortedEnd; i < numberOfEntries; i++) {
+			if (storage[i].compareTo(item) > 0) {
+				rank++;
+			}
+		}
+
+		return rank;
+	}
+
+	@Override
+	public void rebuild(T[] items) {
+		if (items.length > storage.length * LOAD_RATIO) {
+			// grow once to fit every item
+			int newSize = storage.length;
+			while (items.length > newSize * LOAD_RATIO) {
+				newSize *= 2;
+			}
+			capacityCheck(newSize);
+			storage = Arrays.copyOf(storage, newSize);
+			positions = Arrays.copyOf(positions, newSize);
+		}
+
+		// already sorted -- copy in and index once
+		if (numberOfEntries > items.length) {
+			Arrays.fill(storage, items.length, numberOfEntries, null);  // do not hold on to old entries
+		}
+		System.arraycopy(items, 0, storage, 0, items.length);
+		index = new Dictionary<>(Math.max(items.length, 1), false, true);
+		for (int i = 0; i < items.length; i++) {
+			positions[i] = new Position(i);
+			index.add(items[i], positions[i]);
+		}
+
+		numberOfEntries = items.length;
+		sortedEnd = numberOfEntries;
+		lastRank = -2;
+		queriesSinceAdd = 0;
+		fallbacks = 0;
 	}
 
-	
-//	/**
-//	 * Sorts an array with the quicksort algorithm -- good on unsorted data
-//	 * @param low
-//	 * @param high
-//	 */
-//	private void quickSort(int low, int high) {
-//		if (low >= high) {
-//			return;
-//		}
-//		T pivot = storage[(low + high) / 2];
-//		int i = low;
-//		int j = high;
-//
-//		while (i <= j) {
-//			while (storage[i].compareTo(pivot) > 0) {
-//				i++;
-//			}
-//			while (storage[j].compareTo(pivot) < 0) {
-//				j--;
-//			}
-//			if (i <= j) {
-//				swap(i++, j--);
-//			}
-//		}
-//
-//		if (low < j) {
-//			quickSort(low, j);
-//		}
-//		if (high > i) {
-//			quickSort(i, high);
-//		}
-//
-//	}
+	@Override
+	public int getSize() {
+		return numberOfEntries;
+	}
+
+	private static class Position {
+		private int index;  // slot in storage
+
+		/**
+		 * Position constructor
+		 * @param index slot in storage
+		 */
+		private Position(int index) {
+			this.index = index;
+		}
+	}
 
 }
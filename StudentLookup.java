@@ -1,3 +1,6 @@
+import java.util.Arrays;
+import java.util.Collections;
+
 /**
  * Your implementation of the LookupInterface.  The only public methods
  * in this class should be the ones that implement the interface.  You
@@ -12,8 +15,9 @@
 
  
 public class StudentLookup implements LookupInterface {
-	private Dictionary<DataWrapper, Integer> dict;
-	private StorageArrayUtil<DataWrapper> store;
+	private CountTable counts;
+	private RankingInterface<DataWrapper> store;
+	private PrefixIndex prefixes;  // built by the first prefix query, then kept up to date
 
 	
 	
@@ -21,43 +25,83 @@ public class StudentLookup implements LookupInterface {
 	 * Constructor for StudentLookup
 	 */
 	public StudentLookup() {
-		dict = new Dictionary<>();
-		store = new StorageArrayUtil<>();
+		this(new OrderStatisticTree<>());
+	}
+
+	/**
+	 * Constructor for StudentLookup sized for a number of distinct strings
+	 * @param capacity number of distinct strings expected; more are still counted
+	 */
+	public StudentLookup(int capacity) {
+		this(new OrderStatisticTree<>(), capacity);
+	}
+
+	/**
+	 * Constructor for StudentLookup with a specific ranking store
+	 * @param store empty store to rank entries with
+	 */
+	StudentLookup(RankingInterface<DataWrapper> store) {
+		counts = new CountTable();
+		this.store = store;
+	}
+
+	/**
+	 * Constructor for StudentLookup with a specific ranking store and size
+	 * @param store empty store to rank entries with
+	 * @param capacity number of distinct strings expected
+	 */
+	StudentLookup(RankingInterface<DataWrapper> store, int capacity) {
+		counts = new CountTable(capacity);
+		this.store = store;
 	}
 
 	@Override
 	public void addString(int amount, String s) {
-		DataWrapper newEntry = new DataWrapper(s, amount);  // wrap the data so it can be worked on
-		
-		if (dict.getValue(newEntry) != null) {
-			int count = dict.getValue(newEntry) + amount;
-			// dictionary already contains value -- re-add value but replace amount
-			dict.add(newEntry, count);
-			store.updateEntry(new DataWrapper(s, count));
-		} else {
-			// dictionary does not contain value already  -- add original value
-			dict.add(newEntry, amount);  // add just new amount
-			store.add(newEntry);
-		}
+		int oldSize = counts.getSize();
+		int count = counts.increment(s, amount);  // single probe for lookup and insert
+
+		rank(s, count, amount, counts.getSize() == oldSize);
 	}
 
-	@Override
-	public int lookupCount(String s) {
-		return lookupCount(new DataWrapper(s));
+	/**
+	 * Increase the count of a string given as ASCII bytes, as addString does
+	 * No String is made unless the string is new
+	 * @param amount amount by which it is being increased
+	 * @param bytes array holding the string
+	 * @param from index of its first byte
+	 * @param length number of bytes
+	 */
+	void addBytes(int amount, byte[] bytes, int from, int length) {
+		int oldSize = counts.getSize();
+		int count = counts.increment(bytes, from, length, amount);
+
+		rank(counts.getLastKey(), count, amount, counts.getSize() == oldSize);
 	}
-	
+
 	/**
-	 * Performs same duty as standard lookupCount but with a DataWrapper passed through
-	 * @param entry DataWrapper to look up
-	 * @return how often it occurs
+	 * Bring the ranking store up to date after a count changed
+	 * @param s string whose count changed
+	 * @param count its new count
+	 * @param amount amount it changed by
+	 * @param existed true if the table already contained it
 	 */
-	private int lookupCount(DataWrapper entry) {
-		if (dict.getValue(entry) == null) {
-			// value does not exist
-			return 0;
+	private void rank(String s, int count, int amount, boolean existed) {
+		if (existed) {
+			// table already contained value -- replace amount in the store
+			store.updateEntry(new DataWrapper(s, count - amount), new DataWrapper(s, count));
+		} else {
+			// table did not contain value already  -- add original value
+			store.add(new DataWrapper(s, amount));
+		}
+
+		if (prefixes != null) {
+			prefixes.update(s, count);
 		}
-		
-		return dict.getValue(entry);
+	}
+
+	@Override
+	public int lookupCount(String s) {
+		return counts.get(s);  // 0 when the value does not exist
 	}
 	
 	@Override
@@ -65,9 +109,118 @@ public class StudentLookup implements LookupInterface {
 		return store.getNMax(n).getData();
 	}
 
+	@Override
+	public DataWrapper[] topK(int k) {
+		return lookupPopularityRange(0, k);
+	}
+
+	@Override
+	public DataWrapper[] lookupPopularityRange(int from, int to) {
+		to = Math.min(to, numEntries());  // a range past the end is cut short
+
+		if (from < 0 || from >= to) {
+			return new DataWrapper[0];
+		}
+
+		DataWrapper[] range = new DataWrapper[to - from];
+		store.getNMaxRange(from, range);  // one pass over the store
+		return range;
+	}
+
+	@Override
+	public int lookupRank(String s) {
+		int count = counts.get(s);
+
+		if (count == 0) {
+			return -1;  // never added
+		}
+
+		return store.getRank(new DataWrapper(s, count));  // the stored entry is equal to this one
+	}
+
+	@Override
+	public DataWrapper[] lookupPrefix(String prefix, int k) {
+		if (prefixes == null) {
+			// first prefix query -- index what has been counted so far
+			prefixes = new PrefixIndex();
+			counts.forEach(prefixes::update);
+		}
+
+		return prefixes.lookup(prefix, k);
+	}
+
+	@Override
+	public void mergeFrom(LookupInterface other) {
+		// gather the other side first, so merging an instance into itself works too
+		if (other instanceof StudentLookup) {
+			// walk its table directly
+			int size = other.numEntries();
+			String[] keys = new String[size];
+			int[] amounts = new int[size];
+			int[] filled = {0};
+			((StudentLookup) other).counts.forEach((s, count) -> {
+				keys[filled[0]] = s;
+				amounts[filled[0]++] = count;
+			});
+			mergeCounts(keys, amounts, size);
+		} else {
+			// numEntries may only be an estimate -- ask for everything the other can rank
+			DataWrapper[] entries = other.topK(Integer.MAX_VALUE);
+			String[] keys = new String[entries.length];
+			int[] amounts = new int[entries.length];
+			for (int i = 0; i < entries.length; i++) {
+				keys[i] = entries[i].getData();
+				amounts[i] = entries[i].getCount();
+			}
+			mergeCounts(keys, amounts, entries.length);
+		}
+	}
+
+	/**
+	 * Add a batch of counts in bulk: the table grows at most once, and the store is
+	 * rebuilt from one sort of the changed entries merged into its current order,
+	 * instead of being updated once per key -- O(n + m log m) for m keys
+	 * @param keys strings to add to; each at most once
+	 * @param amounts amount to add to the string at the same index; zeros are skipped
+	 * @param size number of strings
+	 */
+	void mergeCounts(String[] keys, int[] amounts, int size) {
+		DataWrapper[] current = new DataWrapper[store.getSize()];
+		store.getNMaxRange(0, current);
+
+		counts.ensureCapacity(counts.getSize() + size);
+		DataWrapper[] changed = new DataWrapper[size];
+		int numberChanged = 0;
+		for (int i = 0; i < size; i++) {
+			if (amounts[i] != 0) {
+				changed[numberChanged++] = new DataWrapper(keys[i], counts.increment(keys[i], amounts[i]));
+			}
+		}
+		Arrays.parallelSort(changed, 0, numberChanged, Collections.reverseOrder());
+
+		// merge the two sorted lists; a current entry whose count moved is replaced by its changed one
+		DataWrapper[] entries = new DataWrapper[counts.getSize()];
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < entries.length; k++) {
+			while (i < current.length && counts.get(current[i].getData()) != current[i].getCount()) {
+				i++;  // stale
+			}
+
+			if (j >= numberChanged || (i < current.length && current[i].compareTo(changed[j]) > 0)) {
+				entries[k] = current[i++];
+			} else {
+				entries[k] = changed[j++];
+			}
+		}
+		store.rebuild(entries);
+
+		prefixes = null;  // rebuilt from the table by the next prefix query
+	}
+
 	@Override
 	public int numEntries() {
-		return dict.getSize();
+		return counts.getSize();
 	}
     
 	
@@ -0,0 +1,233 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Splits ASCII text into the same words as Controller's original readFile, straight from bytes
+ * readFile deleted every character but [A-Za-z0-9] and the space from each line, then split
+ * on spaces; so a space or line break ends a word, letters and digits are kept, and every
+ * other byte is dropped without ending the word ("don't" is "dont")
+ * Files are memory mapped and scanned a byte at a time with no regex and no per line
+ * Strings; each word is handed over as a run of bytes in a reused array
+ * A tokenizer carries a word that is cut off at the end of one buffer into the next,
+ * so a file can be fed to it in any number of pieces; only the word being read is held,
+ * so counting a file needs heap for its distinct words, not for the file
+ * @author Zachary Zampa
+ * @since 2019/05/26
+ *
+ */
+
+
+public class Tokenizer {
+
+	// Tokenizer Properties
+	private byte[] word;  // bytes of the word being read
+	private int length;  // bytes of word so far
+	private long words;  // words handed over so far
+	private static final int MAP_WINDOW = 1 << 26;  // bytes mapped at a time -- 64 MB
+	private static final int READ_BLOCK = 1 << 16;  // bytes read at a time from a stream -- 64 KB
+	private static final int DEFAULT_WORD = 256;  // starting room for a word; grows if needed
+
+	// Byte classes
+	private static final byte DROP = 0;  // skipped; does not end a word -- every byte not set below
+	private static final byte KEEP = 1;  // letter or digit
+	private static final byte SPLIT = 2;  // space or line break; ends a word
+	private static final byte[] CLASSES = new byte[256];
+
+	static {
+		for (int c = '0'; c <= '9'; c++) {
+			CLASSES[c] = KEEP;
+		}
+		for (int c = 'A'; c <= 'Z'; c++) {
+			CLASSES[c] = KEEP;
+			CLASSES[c + 'a' - 'A'] = KEEP;
+		}
+		CLASSES[' '] = SPLIT;
+		CLASSES['\n'] = SPLIT;
+		CLASSES['\r'] = SPLIT;
+	}
+
+
+	/**
+	 * Receives each word a tokenizer finds
+	 */
+	public interface WordSink {
+
+		/**
+		 * Take a word; the array is reused once this returns
+		 * @param bytes array holding the word from index 0
+		 * @param length number of bytes in the word
+		 */
+		public void word(byte[] bytes, int length);
+	}
+
+
+	/**
+	 * Empty Constructor
+	 */
+	public Tokenizer() {
+		word = new byte[DEFAULT_WORD];
+		length = 0;
+		words = 0;
+	}
+
+	/**
+	 * Count every word of a file into a lookup as it is read
+	 * @param fileName file to read
+	 * @param lookup lookup to count into
+	 */
+	public static void countFile(String fileName, LookupInterface lookup) {
+		new Tokenizer().scanFile(fileName, counter(lookup));
+	}
+
+	/**
+	 * Count every word of a stream into a lookup as it is read, a block at a time
+	 * For input that cannot be mapped, such as a pipe or a decompressing stream
+	 * @param in stream to read; left open
+	 * @param lookup lookup to count into
+	 * @throws IOException if reading fails
+	 */
+	public static void countStream(InputStream in, LookupInterface lookup) throws IOException {
+		new Tokenizer().scanStream(in, counter(lookup));
+	}
+
+	/**
+	 * Get a sink that adds each word to a lookup once
+	 * A StudentLookup is handed the bytes, so a word it already counts never becomes a String
+	 * @param lookup lookup to count into
+	 * @return sink
+	 */
+	public static WordSink counter(LookupInterface lookup) {
+		if (lookup instanceof StudentLookup) {
+			StudentLookup student = (StudentLookup) lookup;
+			return (bytes, length) -> student.addBytes(1, bytes, 0, length);
+		}
+		return (bytes, length) -> lookup.addString(1, new String(bytes, 0, length, StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Read every word of a file into a list, like Controller's original readFile
+	 * @param fileName file to read
+	 * @return words in order
+	 */
+	public static ArrayList<String> readFile(String fileName) {
+		ArrayList<String> wordList = new ArrayList<>();
+		new Tokenizer().scanFile(fileName, (bytes, length) -> wordList.add(new String(bytes, 0, length, StandardCharsets.ISO_8859_1)));
+		return wordList;
+	}
+
+	/**
+	 * Memory map a file a window at a time and hand every word to a sink
+	 * @param fileName file to read
+	 * @param sink receives each word
+	 */
+	public void scanFile(String fileName, WordSink sink) {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			scanRange(channel, 0, channel.size(), sink);
+			finish(sink);
+		} catch (NoSuchFileException ex) {
+			System.err.println("Unable to open file '" + fileName + "'");
+			System.exit(1);
+		} catch (IOException ex) {
+			System.err.println("Error reading file '" + fileName + "'");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Memory map a range of a file a window at a time and hand every word that ends in it to a sink
+	 * A word still open at the end is kept for the next range or for finish
+	 * @param channel file to read
+	 * @param from offset of the first byte
+	 * @param to offset after the last byte
+	 * @param sink receives each word
+	 * @throws IOException if mapping fails
+	 */
+	public void scanRange(FileChannel channel, long from, long to, WordSink sink) throws IOException {
+		for (long position = from; position < to; position += MAP_WINDOW) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, to - position));
+			scan(buffer, sink);  // a word cut by the window carries over
+		}
+	}
+
+	/**
+	 * Read a stream a block at a time into one reused buffer and hand every word to a sink
+	 * @param in stream to read; left open
+	 * @param sink receives each word
+	 * @throws IOException if reading fails
+	 */
+	public void scanStream(InputStream in, WordSink sink) throws IOException {
+		byte[] block = new byte[READ_BLOCK];
+		ByteBuffer buffer = ByteBuffer.wrap(block);
+		int read;
+
+		while ((read = in.read(block)) != -1) {
+			buffer.clear();
+			buffer.limit(read);
+			scan(buffer, sink);  // a word cut by the block carries over
+		}
+		finish(sink);
+	}
+
+	/**
+	 * Scan the remaining bytes of a buffer, handing over every word that ends in it
+	 * A word still open at the end is kept for the next buffer or for finish
+	 * @param buffer bytes to scan; its position is left unchanged
+	 * @param sink receives each word
+	 */
+	public void scan(ByteBuffer buffer, WordSink sink) {
+		for (int i = buffer.position(); i < buffer.limit(); i++) {
+			byte b = buffer.get(i);
+			byte type = CLASSES[b & 0xFF];
+
+			if (type == KEEP) {
+				if (length == word.length) {
+					word = Arrays.copyOf(word, length * 2);  // very long word
+				}
+				word[length++] = b;
+			} else if (type == SPLIT && length > 0) {
+				sink.word(word, length);
+				length = 0;
+				words++;
+			}
+		}
+	}
+
+	/**
+	 * Hand over the word still open at the end of the input, if any
+	 * @param sink receives the word
+	 */
+	public void finish(WordSink sink) {
+		if (length > 0) {
+			sink.word(word, length);
+			length = 0;
+			words++;
+		}
+	}
+
+	/**
+	 * Check if a byte ends a word
+	 * @param b byte
+	 * @return true for a space or line break
+	 */
+	static boolean isSplit(byte b) {
+		return CLASSES[b & 0xFF] == SPLIT;
+	}
+
+	/**
+	 * Get the number of words handed over so far
+	 * @return words
+	 */
+	public long getWords() {
+		return words;
+	}
+
+}
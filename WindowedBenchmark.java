@@ -0,0 +1,55 @@
+import java.util.ArrayList;
+
+/**
+ * Rudimentary comparison of WindowedLookup against StudentLookup
+ * Times the ingest of each Controller input with both; the window is long enough
+ * that nothing expires, so the difference is the cost of the per bucket tables
+ * @author Zachary Zampa
+ * @since 2019/05/21
+ *
+ */
+public class WindowedBenchmark {
+
+	private static final int ROUNDS = 3;  // timed rounds per lookup; the best is reported
+
+	public static void main(String[] args) {
+		String[] files = args.length > 0 ? args
+				: new String[] {"1.txt", "2.txt", "3.txt", "4.txt", "5.txt", "6.txt", "7.txt"};
+
+		for (String file : files) {
+			System.out.println("file " + file);
+			ArrayList<String> wordList = Controller.readFile(file);
+
+			// warm up both paths once so the first one is not penalized
+			ingest(new StudentLookup(), wordList);
+			ingest(new WindowedLookup(), wordList);
+
+			double exact = Double.MAX_VALUE;
+			double windowed = Double.MAX_VALUE;
+			for (int i = 0; i < ROUNDS; i++) {
+				exact = Math.min(exact, ingest(new StudentLookup(), wordList));
+				windowed = Math.min(windowed, ingest(new WindowedLookup(), wordList));
+			}
+
+			System.out.println("exact   : " + exact + " milliseconds / insert");
+			System.out.println("windowed: " + windowed + " milliseconds / insert ("
+					+ Math.round(100 * (windowed / exact - 1)) + "% slower)");
+		}
+	}
+
+	/**
+	 * Add every word to a lookup
+	 * @param lookup lookup to fill
+	 * @param wordList words to count
+	 * @return milliseconds per insert
+	 */
+	private static double ingest(LookupInterface lookup, ArrayList<String> wordList) {
+		long startTime = System.nanoTime();
+		for (String w : wordList) {
+			lookup.addString(1, w);
+		}
+		long endTime = System.nanoTime();
+		return ((endTime - startTime) / 1000000.0) / wordList.size();
+	}
+
+}
@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.function.LongSupplier;
+
+/**
+ * A LookupInterface that only counts what was added within a sliding time window
+ * The window is split into buckets of equal length kept in a ring, each with its own
+ * count table, and a running aggregate holds the window's totals for the queries
+ * When time moves into a new bucket the oldest one is expired by subtracting its
+ * counts from the aggregate, so expiry costs O(size of that bucket), never a recount
+ * @author Zachary Zampa
+ * @since 2019/05/21
+ *
+ */
+
+
+public class WindowedLookup implements LookupInterface {
+
+	// Window Properties
+	private CountTable counts;  // totals over the window
+	private OrderStatisticTree<DataWrapper> store;  // ranks the totals; entries can shrink and leave
+	private CountTable[] buckets;  // ring of per bucket counts
+	private long bucketMillis;  // length of one bucket
+	private long currentEpoch;  // bucket number of the current time; its slot is currentEpoch % buckets.length
+	private LongSupplier clock;  // current time in milliseconds
+	private static final long DEFAULT_WINDOW = 60 * 60 * 1000;  // default window -- one hour
+	private static final int DEFAULT_BUCKETS = 60;  // default buckets per window -- one a minute
+	private static final int BUCKET_CAPACITY = 1024;  // starting capacity of a bucket's table
+
+
+	/**
+	 * Empty Constructor -- the last hour, in one minute buckets
+	 */
+	public WindowedLookup() {
+		this(DEFAULT_WINDOW, DEFAULT_BUCKETS);
+	}
+
+	/**
+	 * Window based Constructor
+	 * @param windowMillis length of the window in milliseconds
+	 * @param numberOfBuckets how many buckets the window is split into; counts expire a bucket at a time
+	 */
+	public WindowedLookup(long windowMillis, int numberOfBuckets) {
+		this(windowMillis, numberOfBuckets, System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructor with a specific clock
+	 * @param windowMillis length of the window in milliseconds
+	 * @param numberOfBuckets how many buckets the window is split into
+	 * @param clock current time in milliseconds
+	 */
+	WindowedLookup(long windowMillis, int numberOfBuckets, LongSupplier clock) {
+		counts = new CountTable();
+		store = new OrderStatisticTree<>();
+		buckets = new CountTable[numberOfBuckets];
+		for (int i = 0; i < numberOfBuckets; i++) {
+			buckets[i] = new CountTable(BUCKET_CAPACITY);
+		}
+
+		bucketMillis = Math.max(1, windowMillis / numberOfBuckets);
+		this.clock = clock;
+		currentEpoch = clock.getAsLong() / bucketMillis;
+	}
+
+	@Override
+	public void addString(int amount, String s) {
+		advance();
+		buckets[(int) (currentEpoch % buckets.length)].increment(s, amount);
+
+		int oldSize = counts.getSize();
+		int count = counts.increment(s, amount);
+
+		if (counts.getSize() == oldSize) {
+			// already in the window -- replace amount in the store
+			store.updateEntry(new DataWrapper(s, count - amount), new DataWrapper(s, count));
+		} else {
+			store.add(new DataWrapper(s, amount));
+		}
+	}
+
+	@Override
+	public int lookupCount(String s) {
+		advance();
+		return counts.get(s);  // 0 when the value is not in the window
+	}
+
+	@Override
+	public String lookupPopularity(int n) {
+		advance();
+		return store.getNMax(n).getData();
+	}
+
+	@Override
+	public DataWrapper[] topK(int k) {
+		return lookupPopularityRange(0, k);
+	}
+
+	@Override
+	public DataWrapper[] lookupPopularityRange(int from, int to) {
+		to = Math.min(to, numEntries());  // a range past the end is cut short
+
+		if (from < 0 || from >= to) {
+			return new DataWrapper[0];
+		}
+
+		DataWrapper[] range = new DataWrapper[to - from];
+		store.getNMaxRange(from, range);
+		return range;
+	}
+
+	@Override
+	public int lookupRank(String s) {
+		int count = lookupCount(s);
+
+		if (count == 0) {
+			return -1;  // not in the window
+		}
+
+		return store.getRank(new DataWrapper(s, count));
+	}
+
+	/**
+	 * Scans the window; a PrefixIndex needs counts that only grow, which expiry breaks
+	 */
+	@Override
+	public DataWrapper[] lookupPrefix(String prefix, int k) {
+		advance();
+		ArrayList<DataWrapper> matches = new ArrayList<>();
+		counts.forEach((s, count) -> {
+			if (s.startsWith(prefix)) {
+				matches.add(new DataWrapper(s, count));
+			}
+		});
+
+		matches.sort(Collections.reverseOrder());
+		return matches.subList(0, Math.max(0, Math.min(k, matches.size()))).toArray(new DataWrapper[0]);
+	}
+
+	@Override
+	public int numEntries() {
+		advance();
+		return counts.getSize();
+	}
+
+	/**
+	 * Move the window up to the current time, expiring every bucket it leaves behind
+	 */
+	private void advance() {
+		long epoch = clock.getAsLong() / bucketMillis;
+
+		if (epoch > currentEpoch) {
+			// a bucket is only reused after its old counts expire; a long gap expires each slot once
+			long steps = Math.min(epoch - currentEpoch, buckets.length);
+			for (long i = 1; i <= steps; i++) {
+				expire((int) ((currentEpoch + i) % buckets.length));
+			}
+			currentEpoch = epoch;
+		}
+	}
+
+	/**
+	 * Subtract a bucket's counts from the window and empty it
+	 * @param slot index of the bucket in the ring
+	 */
+	private void expire(int slot) {
+		buckets[slot].forEach((s, amount) -> {
+			int count = counts.increment(s, -amount);
+
+			if (count == 0) {
+				// gone from the window
+				counts.remove(s);
+				store.remove(new DataWrapper(s, amount));
+			} else {
+				store.updateEntry(new DataWrapper(s, count + amount), new DataWrapper(s, count));
+			}
+		});
+
+		buckets[slot] = new CountTable(BUCKET_CAPACITY);  // a busy bucket's large table is not kept around
+	}
+
+}